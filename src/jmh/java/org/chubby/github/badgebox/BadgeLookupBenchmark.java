@@ -0,0 +1,60 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.Identifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Registry lookups, including the editor's stack-to-badge resolution, against large catalogs
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BadgeLookupBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int registrySize;
+
+    private Identifier[] ids;
+    private ItemStack[] stacks;
+
+    @Setup
+    public void setup() {
+        BenchmarkData.bootstrapMinecraft();
+        BenchmarkData.registerBadges(registrySize);
+
+        ids = new Identifier[registrySize];
+        stacks = new ItemStack[registrySize];
+        for (int i = 0; i < registrySize; i++) {
+            Badge badge = BadgeRegistry.getBadge(BenchmarkData.badgeId(i));
+            ids[i] = badge.getId();
+
+            ItemStack stack = badge.copyDisplayItem();
+            stack.set(DataComponentTypes.ITEM_NAME, badge.getDisplayNameText());
+            BadgeEditorScreenHandler.tagBadgeId(stack, badge.getId());
+            stacks[i] = stack;
+        }
+    }
+
+    @Benchmark
+    public Identifier getBadgeIdFromStack() {
+        return BadgeEditorScreenHandler.getBadgeIdFromStack(stacks[ThreadLocalRandom.current().nextInt(stacks.length)]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Badge getBadgeContended() {
+        return BadgeRegistry.getBadge(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public BadgeRegistry.Snapshot snapshotContended() {
+        return BadgeRegistry.snapshot();
+    }
+}
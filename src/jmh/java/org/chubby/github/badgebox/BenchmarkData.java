@@ -0,0 +1,72 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.util.Identifier;
+
+import java.util.*;
+
+// Synthetic badges and players shared by the benchmarks
+final class BenchmarkData {
+    private static boolean bootstrapped;
+
+    private BenchmarkData() {
+    }
+
+    // Item stacks need the vanilla registries, which the Fabric launcher would normally set up
+    static synchronized void bootstrapMinecraft() {
+        if (bootstrapped) return;
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        bootstrapped = true;
+    }
+
+    static Identifier badgeId(int index) {
+        return Identifier.of(Badgebox.MOD_ID, "badge_" + index);
+    }
+
+    static List<Identifier> badgeIds(int count) {
+        List<Identifier> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(badgeId(i));
+        }
+        return ids;
+    }
+
+    static Badge badge(int index) {
+        return new Badge(badgeId(index), "§6Badge " + index,
+                List.of("§7Synthetic badge number " + index, "Second lore line"),
+                "category_" + (index % 8),
+                new ItemStack(Items.PAPER), new ItemStack(Items.GRAY_DYE), true);
+    }
+
+    // Decoding benchmarks need the catalog installed: ids the registry does not know fall back to
+    // BadgeIds' small LRU table, which would be measured instead of the real decode path
+    static void registerBadges(int count) {
+        List<Badge> badges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            badges.add(badge(i));
+        }
+        BadgeRegistry.install(badges);
+    }
+
+    // Player owning `owned` badges picked from a catalog of `catalogSize`, with a full display case
+    static PlayerBadgeData player(UUID playerId, int owned, int catalogSize, Random random) {
+        PlayerBadgeData data = new PlayerBadgeData(playerId);
+        Set<Identifier> badges = new LinkedHashSet<>();
+        while (badges.size() < Math.min(owned, catalogSize)) {
+            badges.add(badgeId(random.nextInt(catalogSize)));
+        }
+        data.addBadges(badges);
+
+        int slot = 0;
+        for (Identifier badgeId : badges) {
+            if (slot >= PlayerBadgeData.DISPLAY_SLOTS) break;
+            data.setDisplayBadge(slot++, badgeId);
+        }
+        data.setDisplayName("Player" + playerId.toString().substring(0, 8));
+        return data;
+    }
+}
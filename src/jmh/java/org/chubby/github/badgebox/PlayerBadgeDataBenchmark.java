@@ -0,0 +1,41 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.nbt.NbtCompound;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerBadgeDataBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int ownedBadges;
+
+    private PlayerBadgeData data;
+    private NbtCompound nbt;
+
+    @Setup
+    public void setup() {
+        BenchmarkData.bootstrapMinecraft();
+        BenchmarkData.registerBadges(ownedBadges);
+        data = BenchmarkData.player(UUID.randomUUID(), ownedBadges, ownedBadges, new Random(42));
+        nbt = data.toNbt();
+    }
+
+    @Benchmark
+    public NbtCompound toNbt() {
+        return data.toNbt();
+    }
+
+    @Benchmark
+    public PlayerBadgeData fromNbt() {
+        return PlayerBadgeData.fromNbt(nbt);
+    }
+}
@@ -0,0 +1,65 @@
+package org.chubby.github.badgebox;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Full save and load of player_data.dat through BadgeDataManager
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PlayerDataFileBenchmark {
+    private static final int CATALOG_SIZE = 200;
+    private static final int BADGES_PER_PLAYER = 10;
+
+    @Param({"1000", "10000", "100000"})
+    public int players;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("badgebox-bench");
+        BadgeDataManager.init(null, directory);
+        BadgeDataManager.clearPlayerData();
+        BenchmarkData.bootstrapMinecraft();
+        BenchmarkData.registerBadges(CATALOG_SIZE);
+
+        Random random = new Random(42);
+        for (int i = 0; i < players; i++) {
+            UUID playerId = new UUID(random.nextLong(), random.nextLong());
+            PlayerBadgeData source = BenchmarkData.player(playerId, BADGES_PER_PLAYER, CATALOG_SIZE, random);
+            BadgeDataManager.getPlayerData(playerId).addBadges(source.getOwnedBadges());
+        }
+        BadgeDataManager.savePlayerData();
+    }
+
+    @Benchmark
+    public void savePlayerData() {
+        BadgeDataManager.savePlayerData();
+    }
+
+    @Benchmark
+    public int loadPlayerData() {
+        BadgeDataManager.clearPlayerData();
+        BadgeDataManager.loadPlayerData();
+        return BadgeDataManager.getAllPlayerData().size();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BadgeDataManager.clearPlayerData();
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
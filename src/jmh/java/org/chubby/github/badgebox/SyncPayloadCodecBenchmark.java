@@ -0,0 +1,61 @@
+package org.chubby.github.badgebox;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.registry.DynamicRegistryManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyncPayloadCodecBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int ownedBadges;
+
+    private BadgeNetworking.SyncPlayerBadgeDataPayload payload;
+    private ByteBuf backing;
+    private RegistryByteBuf buf;
+    private int encodedSize;
+
+    @Setup
+    public void setup() {
+        BenchmarkData.bootstrapMinecraft();
+        BenchmarkData.registerBadges(ownedBadges);
+        UUID playerId = UUID.randomUUID();
+        payload = new BadgeNetworking.SyncPlayerBadgeDataPayload(playerId,
+                BenchmarkData.player(playerId, ownedBadges, ownedBadges, new Random(42)));
+        backing = Unpooled.buffer(1024);
+        buf = new RegistryByteBuf(backing, DynamicRegistryManager.EMPTY);
+
+        BadgeNetworking.SyncPlayerBadgeDataPayload.CODEC.encode(buf, payload);
+        encodedSize = buf.readableBytes();
+    }
+
+    @Benchmark
+    public int encode() {
+        buf.clear();
+        BadgeNetworking.SyncPlayerBadgeDataPayload.CODEC.encode(buf, payload);
+        return buf.writerIndex();
+    }
+
+    @Benchmark
+    public BadgeNetworking.SyncPlayerBadgeDataPayload decode() {
+        buf.readerIndex(0);
+        buf.writerIndex(encodedSize);
+        return BadgeNetworking.SyncPlayerBadgeDataPayload.CODEC.decode(buf);
+    }
+
+    @TearDown
+    public void tearDown() {
+        backing.release();
+    }
+}
@@ -0,0 +1,324 @@
+package org.chubby.github.badgebox;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Headless load test: generates a synthetic catalog and population, then drives the real
+// BadgeDataManager, BadgeRegistry and network handler code without a client or a running server.
+// Run with ./gradlew loadTest, e.g. -PloadTestArgs="--players=100000 --badges=5000".
+public final class BadgeLoadTest {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final Map<String, String> options;
+    private final JsonObject report = new JsonObject();
+    private final JsonArray phases = new JsonArray();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    private BadgeLoadTest(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Ignoring argument " + arg + ", expected --name=value");
+                continue;
+            }
+            int split = arg.indexOf('=');
+            options.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+        new BadgeLoadTest(options).run();
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    private double doubleOption(String name, double defaultValue) {
+        return options.containsKey(name) ? Double.parseDouble(options.get(name)) : defaultValue;
+    }
+
+    private void run() throws IOException {
+        int players = intOption("players", 100_000);
+        int badges = intOption("badges", 5_000);
+        int reloads = intOption("reloads", 10);
+        int fileRounds = intOption("fileRounds", 5);
+        int displayEdits = intOption("displayEdits", 200_000);
+        int savedDisplayEdits = intOption("savedDisplayEdits", 20);
+        int syncRequests = intOption("syncRequests", 200_000);
+        long seed = intOption("seed", 42);
+        Path reportFile = Path.of(options.getOrDefault("report", "build/reports/loadtest/report.json"));
+
+        // Item stacks in the catalog need the vanilla registries, which Fabric would normally set up
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+
+        Path directory = Files.createTempDirectory("badgebox-loadtest");
+        BadgeDataManager.init(null, directory);
+        BadgeDataManager.clearPlayerData();
+
+        SyntheticPopulation population = new SyntheticPopulation(badges,
+                doubleOption("zipf", 1.05), doubleOption("ownedMedian", 8), doubleOption("ownedSigma", 1.1), seed);
+        Random random = population.getRandom();
+
+        JsonObject parameters = new JsonObject();
+        parameters.addProperty("players", players);
+        parameters.addProperty("badges", badges);
+        parameters.addProperty("seed", seed);
+        parameters.addProperty("maxHeapBytes", Runtime.getRuntime().maxMemory());
+        report.add("parameters", parameters);
+        System.out.printf("BadgeBox load test: %d players, %d badges, data in %s%n", players, badges, directory);
+
+        try {
+            // Catalog: one full install, then reloads the way BadgeCatalogReloader runs them. The parse
+            // runs off the server thread and the diff is applied on it, so they are timed apart.
+            population.writeCatalog(directory.resolve("badges.json"));
+            BadgeDataManager.loadBadges();
+            BadgeHistogram parseNanos = new BadgeHistogram();
+            BadgeHistogram cachedParseNanos = new BadgeHistogram();
+            BadgeHistogram unchangedNanos = new BadgeHistogram();
+            BadgeHistogram editedNanos = new BadgeHistogram();
+            for (int i = 0; i < reloads; i++) {
+                // Without the compiled cache, then again with the cache the first parse wrote
+                Files.deleteIfExists(BadgeDataManager.getCatalogCacheFile());
+                long start = System.nanoTime();
+                BadgeDataManager.loadCatalog();
+                parseNanos.record(System.nanoTime() - start);
+
+                start = System.nanoTime();
+                BadgeCatalogLoader.Result result = BadgeDataManager.loadCatalog();
+                cachedParseNanos.record(System.nanoTime() - start);
+
+                // A reload that finds nothing changed, as when a watched file is only touched
+                start = System.nanoTime();
+                applyReload(result.badges(), result.categories(), 0);
+                unchangedNanos.record(System.nanoTime() - start);
+
+                // One badge edited, then put back: each a single-badge diff
+                List<Badge> edited = withEditedBadge(result.badges(), i * result.badges().size() / reloads, i);
+                start = System.nanoTime();
+                applyReload(edited, result.categories(), 1);
+                editedNanos.record(System.nanoTime() - start);
+
+                start = System.nanoTime();
+                applyReload(result.badges(), result.categories(), 1);
+                editedNanos.record(System.nanoTime() - start);
+            }
+            int catalogSize = BadgeRegistry.getAllBadges().size();
+            repeatedPhase("catalog parse", parseNanos, reloads, catalogSize);
+            repeatedPhase("catalog parse (cached)", cachedParseNanos, reloads, catalogSize);
+            repeatedPhase("registry reload (unchanged)", unchangedNanos, reloads, catalogSize);
+            repeatedPhase("registry reload (one badge edited)", editedNanos, 2 * reloads, catalogSize);
+
+            // Population
+            long populateStart = System.nanoTime();
+            List<UUID> playerIds = population.populate(players);
+            long populateNanos = System.nanoTime() - populateStart;
+            phase("populate", populateNanos, players);
+            recordOwnership();
+
+            // Full save and load of player_data.dat
+            BadgeHistogram saveNanos = new BadgeHistogram();
+            for (int i = 0; i < fileRounds; i++) {
+                long start = System.nanoTime();
+                BadgeDataManager.savePlayerData();
+                saveNanos.record(System.nanoTime() - start);
+            }
+            repeatedPhase("save player data", saveNanos, fileRounds, players);
+            report.addProperty("playerDataBytes", Files.size(directory.resolve("player_data.dat")));
+
+            BadgeHistogram loadNanos = new BadgeHistogram();
+            for (int i = 0; i < fileRounds; i++) {
+                BadgeDataManager.clearPlayerData();
+                long start = System.nanoTime();
+                BadgeDataManager.loadPlayerData();
+                loadNanos.record(System.nanoTime() - start);
+            }
+            repeatedPhase("load player data", loadNanos, fileRounds, BadgeDataManager.getPlayerRecordCount());
+
+            // Display edits: the mutation alone, then the full handler which also saves
+            BadgeHistogram editNanos = new BadgeHistogram();
+            for (int i = 0; i < displayEdits; i++) {
+                UUID playerId = playerIds.get(random.nextInt(players));
+                int slot = random.nextInt(PlayerBadgeData.DISPLAY_SLOTS);
+                Identifier badgeId = randomOwnedBadge(playerId, random);
+
+                long start = System.nanoTime();
+                BadgeDataManager.getPlayerData(playerId).setDisplayBadge(slot, badgeId);
+                editNanos.record(System.nanoTime() - start);
+            }
+            phase("display edit (mutation)", editNanos, displayEdits);
+
+            BadgeHistogram savedEditNanos = new BadgeHistogram();
+            for (int i = 0; i < savedDisplayEdits; i++) {
+                UUID playerId = playerIds.get(random.nextInt(players));
+                BadgeNetworking.UpdateBadgeDisplayPayload payload = new BadgeNetworking.UpdateBadgeDisplayPayload(
+                        random.nextInt(PlayerBadgeData.DISPLAY_SLOTS), randomOwnedBadge(playerId, random));
+
+                long start = System.nanoTime();
+                BadgeNetworking.applyDisplayUpdate(playerId, payload);
+                savedEditNanos.record(System.nanoTime() - start);
+            }
+            phase("display edit (handler with save)", savedEditNanos, savedDisplayEdits);
+
+            // Sync requests: look up the target and encode the reply as it would go on the wire
+            BadgeHistogram syncNanos = new BadgeHistogram();
+            BadgeHistogram syncBytes = new BadgeHistogram();
+            ByteBuf backing = Unpooled.buffer(4096);
+            RegistryByteBuf buf = new RegistryByteBuf(backing, DynamicRegistryManager.EMPTY);
+            try {
+                for (int i = 0; i < syncRequests; i++) {
+                    UUID targetId = playerIds.get(random.nextInt(players));
+
+                    long start = System.nanoTime();
+                    buf.clear();
+                    PlayerBadgeData target = BadgeDataManager.findPlayerData(targetId);
+                    BadgeNetworking.SyncPlayerBadgeDataPayload.CODEC.encode(buf,
+                            new BadgeNetworking.SyncPlayerBadgeDataPayload(targetId, target));
+                    syncNanos.record(System.nanoTime() - start);
+                    syncBytes.record(buf.writerIndex());
+                }
+            } finally {
+                backing.release();
+            }
+            JsonObject sync = phase("sync request", syncNanos, syncRequests);
+            sync.addProperty("meanBytes", syncBytes.getMean());
+            sync.addProperty("p99Bytes", syncBytes.getPercentile(99));
+            sync.addProperty("maxBytes", syncBytes.getMax());
+
+            report.add("phases", phases);
+            writeReport(reportFile);
+        } finally {
+            BadgeDataManager.clearPlayerData();
+            BadgeRegistry.clearBadges();
+            try (var files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // The server-thread half of a reload, as BadgeCatalogReloader.tick runs it, minus the screen refresh
+    private static void applyReload(List<Badge> badges, List<BadgeCategory> categories, int expectedModified) {
+        BadgeCatalogDiff diff = BadgeRegistry.apply(badges, categories);
+        if (diff.criteriaChanged()) {
+            BadgeCriteria.rebuild();
+        }
+        if (diff.modified().size() != expectedModified || !diff.added().isEmpty() || !diff.removed().isEmpty()) {
+            throw new IllegalStateException("Reload expected " + expectedModified + " modified badge(s), got "
+                    + diff.added().size() + " added, " + diff.modified().size() + " modified, "
+                    + diff.removed().size() + " removed");
+        }
+    }
+
+    private static List<Badge> withEditedBadge(List<Badge> badges, int index, int round) {
+        List<Badge> edited = new ArrayList<>(badges);
+        Badge badge = badges.get(index);
+        edited.set(index, new Badge(badge.getId(), badge.getName() + " (edit " + round + ")", badge.getLore(),
+                badge.getCategory(), badge.getDisplayItemView(), badge.getSilhouetteItemView(), badge.isObtainable(),
+                badge.getCriteria(), badge.getAppearance()));
+        return edited;
+    }
+
+    private static Identifier randomOwnedBadge(UUID playerId, Random random) {
+        List<Identifier> owned = new ArrayList<>(BadgeDataManager.getPlayerData(playerId).getOwnedBadges());
+        // Clearing a slot is a valid edit too, and the only one for a player with no badges
+        if (owned.isEmpty() || random.nextInt(10) == 0) return null;
+        return owned.get(random.nextInt(owned.size()));
+    }
+
+    private void recordOwnership() {
+        BadgeHistogram owned = new BadgeHistogram();
+        for (PlayerBadgeData data : BadgeDataManager.getAllPlayerData()) {
+            owned.record(data.getOwnedBadgeCount());
+        }
+
+        JsonObject ownership = new JsonObject();
+        ownership.addProperty("total", owned.getSum());
+        ownership.addProperty("mean", owned.getMean());
+        ownership.addProperty("p50", owned.getPercentile(50));
+        ownership.addProperty("p99", owned.getPercentile(99));
+        ownership.addProperty("max", owned.getMax());
+        report.add("badgesPerPlayer", ownership);
+        System.out.printf("  badges per player: mean %.1f, p50 %d, p99 %d, max %d, %d grants in total%n",
+                owned.getMean(), owned.getPercentile(50), owned.getPercentile(99), owned.getMax(), owned.getSum());
+    }
+
+    // Single-shot phase: one timing for the whole batch
+    private JsonObject phase(String name, long nanos, int operations) {
+        BadgeHistogram histogram = new BadgeHistogram();
+        histogram.record(nanos);
+        JsonObject phase = phase(name, histogram, 1);
+        phase.addProperty("items", operations);
+        phase.addProperty("itemsPerSecond", operations / (nanos / 1_000_000_000.0));
+        return phase;
+    }
+
+    // Repeated phase where every repetition processes the same `items`; throughput is items per second
+    private JsonObject repeatedPhase(String name, BadgeHistogram latency, int repetitions, int items) {
+        JsonObject phase = phase(name, latency, repetitions);
+        phase.addProperty("items", items);
+        phase.addProperty("itemsPerSecond", items / (latency.getMean() / 1_000_000_000.0));
+        return phase;
+    }
+
+    // Throughput is computed from the time spent inside the measured calls, excluding the
+    // harness's own bookkeeping between them
+    private JsonObject phase(String name, BadgeHistogram latency, int operations) {
+        double seconds = latency.getSum() / 1_000_000_000.0;
+        long heapUsed = heapAfterGc();
+
+        JsonObject phase = new JsonObject();
+        phase.addProperty("name", name);
+        phase.addProperty("operations", operations);
+        phase.addProperty("busyMillis", latency.getSum() / 1_000_000.0);
+        phase.addProperty("operationsPerSecond", operations / seconds);
+        phase.addProperty("meanMicros", latency.getMean() / 1_000.0);
+        phase.addProperty("p50Micros", latency.getPercentile(50) / 1_000.0);
+        phase.addProperty("p90Micros", latency.getPercentile(90) / 1_000.0);
+        phase.addProperty("p99Micros", latency.getPercentile(99) / 1_000.0);
+        phase.addProperty("p999Micros", latency.getPercentile(99.9) / 1_000.0);
+        phase.addProperty("maxMicros", latency.getMax() / 1_000.0);
+        phase.addProperty("heapUsedBytes", heapUsed);
+        phases.add(phase);
+
+        System.out.printf("%-34s %9d ops %10.0f ops/s  mean %10.1f us  p50 %10.1f us  p99 %10.1f us  max %10.1f us  heap %6d MiB%n",
+                name, operations, operations / seconds, latency.getMean() / 1_000.0,
+                latency.getPercentile(50) / 1_000.0, latency.getPercentile(99) / 1_000.0,
+                latency.getMax() / 1_000.0, heapUsed >> 20);
+        return phase;
+    }
+
+    // Live heap after a collection, so the number reflects retained data rather than garbage
+    private long heapAfterGc() {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private void writeReport(Path reportFile) throws IOException {
+        Path parent = reportFile.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (Writer writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+            GSON.toJson(report, writer);
+        }
+        System.out.println("Report written to " + reportFile.toAbsolutePath());
+    }
+}
@@ -0,0 +1,135 @@
+package org.chubby.github.badgebox;
+
+import com.google.gson.stream.JsonWriter;
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Generates badges.json catalogs and player populations shaped like a live server:
+// badge popularity follows a Zipf curve (starter badges are everywhere, event badges are rare)
+// and badges per player follow a log-normal curve (most players own a handful, a few own hundreds).
+final class SyntheticPopulation {
+    private static final String[] CATEGORIES = {"gym", "elite_four", "champion", "special", "event"};
+    private static final String[] DISPLAY_ITEMS = {
+            "minecraft:cobblestone", "minecraft:prismarine_shard", "minecraft:gold_ingot",
+            "minecraft:ice", "minecraft:brick", "minecraft:diamond", "minecraft:nether_star", "minecraft:emerald"
+    };
+    private static final String[] COLORS = {"§6", "§b", "§e", "§d", "§a", "§c"};
+
+    private final int badgeCount;
+    private final double zipfExponent;
+    private final double ownedMedian;
+    private final double ownedSigma;
+    private final Random random;
+    private final List<Identifier> badgeIds;
+    private final double[] popularityCdf;
+
+    SyntheticPopulation(int badgeCount, double zipfExponent, double ownedMedian, double ownedSigma, long seed) {
+        this.badgeCount = badgeCount;
+        this.zipfExponent = zipfExponent;
+        this.ownedMedian = ownedMedian;
+        this.ownedSigma = ownedSigma;
+        this.random = new Random(seed);
+        this.badgeIds = new ArrayList<>(badgeCount);
+        for (int i = 0; i < badgeCount; i++) {
+            badgeIds.add(Identifier.of(Badgebox.MOD_ID, badgeName(i)));
+        }
+        this.popularityCdf = buildCdf();
+    }
+
+    private static String badgeName(int index) {
+        return "synthetic_badge_" + index;
+    }
+
+    private double[] buildCdf() {
+        double[] cdf = new double[badgeCount];
+        double total = 0;
+        for (int rank = 0; rank < badgeCount; rank++) {
+            total += 1.0 / Math.pow(rank + 1, zipfExponent);
+            cdf[rank] = total;
+        }
+        for (int rank = 0; rank < badgeCount; rank++) {
+            cdf[rank] /= total;
+        }
+        return cdf;
+    }
+
+    List<Identifier> getBadgeIds() {
+        return badgeIds;
+    }
+
+    Random getRandom() {
+        return random;
+    }
+
+    // Writes a catalog in the same format BadgeDataManager reads from config/badgebox/badges.json
+    void writeCatalog(Path badgesFile) throws IOException {
+        try (Writer out = Files.newBufferedWriter(badgesFile, StandardCharsets.UTF_8);
+             JsonWriter writer = new JsonWriter(out)) {
+            writer.beginObject();
+            writer.name("version").value("1.0");
+            writer.name("badges").beginObject();
+
+            for (int i = 0; i < badgeCount; i++) {
+                writer.name(badgeName(i)).beginObject();
+                writer.name("name").value(COLORS[i % COLORS.length] + "Synthetic Badge " + i);
+                writer.name("category").value(CATEGORIES[i % CATEGORIES.length]);
+                writer.name("display_item").value(DISPLAY_ITEMS[i % DISPLAY_ITEMS.length]);
+                writer.name("silhouette_item").value("minecraft:gray_concrete");
+                writer.name("obtainable").value(i % 50 != 0);
+                writer.name("lore").beginObject();
+                writer.name("0").value("§7Generated for load testing");
+                writer.name("1").value("§7Popularity rank " + i);
+                writer.endObject();
+                writer.endObject();
+            }
+
+            writer.endObject();
+            writer.endObject();
+        }
+    }
+
+    Identifier sampleBadge() {
+        int index = Arrays.binarySearch(popularityCdf, random.nextDouble());
+        if (index < 0) index = -index - 1;
+        return badgeIds.get(Math.min(index, badgeCount - 1));
+    }
+
+    int sampleOwnedCount() {
+        double owned = ownedMedian * Math.exp(ownedSigma * random.nextGaussian());
+        return (int) Math.min(badgeCount, Math.round(owned));
+    }
+
+    // Fills BadgeDataManager with `players` players and returns their ids in creation order
+    List<UUID> populate(int players) {
+        List<UUID> playerIds = new ArrayList<>(players);
+        for (int i = 0; i < players; i++) {
+            UUID playerId = new UUID(random.nextLong(), random.nextLong());
+            playerIds.add(playerId);
+
+            int owned = sampleOwnedCount();
+            Set<Identifier> badges = new LinkedHashSet<>();
+            // Rejection sampling gets slow once a player owns most of a skewed catalog; cap the attempts
+            for (int attempt = 0; badges.size() < owned && attempt < owned * 8; attempt++) {
+                badges.add(sampleBadge());
+            }
+
+            PlayerBadgeData data = BadgeDataManager.getPlayerData(playerId);
+            data.setDisplayName("Player" + i);
+            data.addBadges(badges);
+
+            // Players fill their display case with their first few badges, as the editor does
+            int slot = 0;
+            for (Identifier badgeId : badges) {
+                if (slot >= PlayerBadgeData.DISPLAY_SLOTS) break;
+                data.setDisplayBadge(slot++, badgeId);
+            }
+        }
+        return playerIds;
+    }
+}
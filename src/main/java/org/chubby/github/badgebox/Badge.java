@@ -3,11 +3,32 @@ package org.chubby.github.badgebox;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.registry.RegistryWrapper;
+import net.minecraft.text.Style;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
 import net.minecraft.util.Identifier;
 import java.util.List;
 import java.util.ArrayList;
 
 public class Badge {
+    // Presentation fields from the v2 catalog schema; v1 badges have none of them
+    public record Appearance(String description, int rarity, Identifier texture, Identifier silhouetteTexture,
+                             boolean animated) {
+        public static final Appearance NONE = new Appearance("", 0, null, null, false);
+    }
+
+    // The name, lore and description split at their § codes
+    record ParsedText(List<BadgeText.Segment> name, List<List<BadgeText.Segment>> lore,
+                      List<BadgeText.Segment> description) {
+        static ParsedText parse(String name, List<String> lore, String description) {
+            List<List<BadgeText.Segment>> loreSegments = new ArrayList<>(lore.size());
+            for (String line : lore) {
+                loreSegments.add(BadgeText.segments(line));
+            }
+            return new ParsedText(BadgeText.segments(name), List.copyOf(loreSegments), BadgeText.segments(description));
+        }
+    }
+
     private final Identifier id;
     private final String name;
     private final List<String> lore;
@@ -15,26 +36,125 @@ public class Badge {
     private final ItemStack displayItem;
     private final ItemStack silhouetteItem;
     private final boolean isObtainable;
+    private final List<BadgeCriterion> criteria;
+    private final Appearance appearance;
+    private final ParsedText parsedText;
+    private int ordinal = -1;
+
+    // Styled text, parsed once from the raw strings above
+    private final String plainName;
+    private final Text nameText;
+    private final Text displayNameText;
+    private final Text lockedNameText;
+    private final List<Text> loreText;
+    private final List<Text> editorLoreText;
+    private final Text descriptionText;
+    private final Text categoryText;
 
     public Badge(Identifier id, String name, List<String> lore, String category,
                  ItemStack displayItem, ItemStack silhouetteItem, boolean isObtainable) {
+        this(id, name, lore, category, displayItem, silhouetteItem, isObtainable, List.of());
+    }
+
+    public Badge(Identifier id, String name, List<String> lore, String category,
+                 ItemStack displayItem, ItemStack silhouetteItem, boolean isObtainable,
+                 List<BadgeCriterion> criteria) {
+        this(id, name, lore, category, displayItem, silhouetteItem, isObtainable, criteria, Appearance.NONE);
+    }
+
+    public Badge(Identifier id, String name, List<String> lore, String category,
+                 ItemStack displayItem, ItemStack silhouetteItem, boolean isObtainable,
+                 List<BadgeCriterion> criteria, Appearance appearance) {
+        this(id, name, lore, category, displayItem, silhouetteItem, isObtainable, criteria, appearance,
+                ParsedText.parse(name, lore, appearance.description()));
+    }
+
+    // For BadgeCatalogCache, which stores the text already split into segments
+    Badge(Identifier id, String name, List<String> lore, String category,
+          ItemStack displayItem, ItemStack silhouetteItem, boolean isObtainable,
+          List<BadgeCriterion> criteria, Appearance appearance, ParsedText parsedText) {
         this.id = id;
         this.name = name;
-        this.lore = new ArrayList<>(lore);
+        this.lore = List.copyOf(lore);
         this.category = category;
         this.displayItem = displayItem;
         this.silhouetteItem = silhouetteItem;
         this.isObtainable = isObtainable;
+        this.criteria = List.copyOf(criteria);
+        this.appearance = appearance;
+        this.parsedText = parsedText;
+
+        this.nameText = BadgeText.toText(parsedText.name(), Style.EMPTY);
+        this.plainName = nameText.getString();
+        this.displayNameText = BadgeText.toText(parsedText.name(), Formatting.YELLOW);
+        this.lockedNameText = BadgeText.toText(parsedText.name(), Formatting.DARK_GRAY);
+
+        List<Text> loreLines = new ArrayList<>(lore.size());
+        List<Text> editorLoreLines = new ArrayList<>(lore.size());
+        for (List<BadgeText.Segment> line : parsedText.lore()) {
+            loreLines.add(BadgeText.toText(line, Style.EMPTY));
+            editorLoreLines.add(BadgeText.toText(line, Formatting.GRAY));
+        }
+        this.loreText = List.copyOf(loreLines);
+        this.editorLoreText = List.copyOf(editorLoreLines);
+        this.descriptionText = parsedText.description().isEmpty() ? null
+                : BadgeText.toText(parsedText.description(), Formatting.GRAY);
+
+        this.categoryText = Text.literal("Category: ").formatted(Formatting.GRAY)
+                .append(Text.literal(category.replace("_", " ")).formatted(Formatting.WHITE));
     }
 
     public Identifier getId() { return id; }
     public String getName() { return name; }
-    public List<String> getLore() { return new ArrayList<>(lore); }
     public String getCategory() { return category; }
-    public ItemStack getDisplayItem() { return displayItem.copy(); }
-    public ItemStack getSilhouetteItem() { return silhouetteItem.copy(); }
     public boolean isObtainable() { return isObtainable; }
 
+    // Stable index assigned by BadgeRegistry; an id keeps its ordinal across reloads
+    public int getOrdinal() { return ordinal; }
+    void setOrdinal(int ordinal) { this.ordinal = ordinal; }
+
+    public Appearance getAppearance() { return appearance; }
+    ParsedText getParsedText() { return parsedText; }
+    public String getDescription() { return appearance.description(); }
+    public int getRarity() { return appearance.rarity(); }
+
+    // Server-side only: criteria are not sent to clients
+    public List<BadgeCriterion> getCriteria() { return criteria; }
+
+    // Read-only views onto the badge's own data. Do not mutate the returned objects.
+    public List<String> getLore() { return lore; }
+    public ItemStack getDisplayItemView() { return displayItem; }
+    public ItemStack getSilhouetteItemView() { return silhouetteItem; }
+
+    // Materialized copies for callers that need to modify the result
+    public List<String> copyLore() { return new ArrayList<>(lore); }
+    public ItemStack copyDisplayItem() { return displayItem.copy(); }
+    public ItemStack copySilhouetteItem() { return silhouetteItem.copy(); }
+
+    // Shared, pre-styled text. Do not mutate the returned objects.
+    public String getPlainName() { return plainName; }
+    public Text getNameText() { return nameText; }
+    public Text getDisplayNameText() { return displayNameText; }
+    public Text getLockedNameText() { return lockedNameText; }
+    public List<Text> getLoreText() { return loreText; }
+    public List<Text> getEditorLoreText() { return editorLoreText; }
+    // Null when the badge has no description
+    public Text getDescriptionText() { return descriptionText; }
+    public Text getCategoryText() { return categoryText; }
+
+    // True if both badges would load from identical catalog entries
+    public boolean sameDefinition(Badge other) {
+        return id.equals(other.id)
+                && name.equals(other.name)
+                && lore.equals(other.lore)
+                && category.equals(other.category)
+                && isObtainable == other.isObtainable
+                && criteria.equals(other.criteria)
+                && appearance.equals(other.appearance)
+                && ItemStack.areEqual(displayItem, other.displayItem)
+                && ItemStack.areEqual(silhouetteItem, other.silhouetteItem);
+    }
+
     public NbtCompound toNbt(RegistryWrapper.WrapperLookup wrapperLookup) {
         NbtCompound nbt = new NbtCompound();
         nbt.putString("id", id.toString());
@@ -49,6 +169,15 @@ public class Badge {
         }
         nbt.put("lore", loreNbt);
 
+        // Store appearance, skipping defaults
+        if (!appearance.description().isEmpty()) nbt.putString("description", appearance.description());
+        if (appearance.rarity() != 0) nbt.putInt("rarity", appearance.rarity());
+        if (appearance.texture() != null) nbt.putString("texture", appearance.texture().toString());
+        if (appearance.silhouetteTexture() != null) {
+            nbt.putString("silhouetteTexture", appearance.silhouetteTexture().toString());
+        }
+        if (appearance.animated()) nbt.putBoolean("animated", true);
+
         // Store items
         nbt.put("displayItem", displayItem.encode(wrapperLookup));
         nbt.put("silhouetteItem", silhouetteItem.encode(wrapperLookup));
@@ -71,10 +200,16 @@ public class Badge {
             i++;
         }
 
+        // Load appearance
+        Appearance appearance = new Appearance(nbt.getString("description"), nbt.getInt("rarity"),
+                nbt.contains("texture") ? Identifier.tryParse(nbt.getString("texture")) : null,
+                nbt.contains("silhouetteTexture") ? Identifier.tryParse(nbt.getString("silhouetteTexture")) : null,
+                nbt.getBoolean("animated"));
+
         // Load items
         ItemStack displayItem = ItemStack.fromNbt(wrapperLookup,nbt.getCompound("displayItem")).get();
         ItemStack silhouetteItem = ItemStack.fromNbt(wrapperLookup,nbt.getCompound("silhouetteItem")).get();
 
-        return new Badge(id, name, lore, category, displayItem, silhouetteItem, obtainable);
+        return new Badge(id, name, lore, category, displayItem, silhouetteItem, obtainable, List.of(), appearance);
     }
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package org.chubby.github.badgebox;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.WorldSavePath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Grants advancement-linked badges to every player who already has the advancement, including
+// players who are offline. Scans world/advancements/<uuid>.json on a background thread one file
+// at a time with a streaming reader, skipping every advancement the catalog does not map to a
+// badge, and hands the grants to the server thread in batches.
+public class BadgeAdvancementBackfill {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeAdvancementBackfill");
+    private static final int BATCH_SIZE = 256;
+    private static final AtomicBoolean running = new AtomicBoolean();
+
+    // Must be called on the server thread. Returns false if a backfill is already running.
+    public static boolean start(ServerCommandSource source) {
+        Map<Identifier, int[]> advancementIndex = BadgeCriteria.getAdvancementIndex();
+        if (advancementIndex.isEmpty()) {
+            source.sendError(Text.literal("No badges are linked to advancements"));
+            return false;
+        }
+        if (!running.compareAndSet(false, true)) {
+            source.sendError(Text.literal("An advancement backfill is already running"));
+            return false;
+        }
+
+        MinecraftServer server = source.getServer();
+        BadgeRegistry.Snapshot registry = BadgeRegistry.snapshot();
+        Path directory = server.getSavePath(WorldSavePath.ADVANCEMENTS);
+
+        Thread thread = new Thread(() -> {
+            try {
+                run(server, source, directory, advancementIndex, registry);
+            } catch (Exception e) {
+                LOGGER.error("Advancement backfill failed", e);
+                server.execute(() -> source.sendError(Text.literal("Advancement backfill failed: " + e.getMessage())));
+            } finally {
+                running.set(false);
+            }
+        }, "BadgeBox-Backfill");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    private static void run(MinecraftServer server, ServerCommandSource source, Path directory,
+                            Map<Identifier, int[]> advancementIndex, BadgeRegistry.Snapshot registry) throws IOException {
+        long start = System.nanoTime();
+        int scanned = 0;
+        int failed = 0;
+        // Only touched on the server thread, by the tasks queued below
+        Set<UUID> changed = new LinkedHashSet<>();
+        int[] grants = new int[1];
+
+        if (Files.isDirectory(directory)) {
+            Map<UUID, List<Identifier>> batch = new HashMap<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+                for (Path file : files) {
+                    UUID playerId = parsePlayerId(file);
+                    if (playerId == null) continue;
+
+                    try {
+                        List<Identifier> earned = scan(file, advancementIndex, registry);
+                        if (!earned.isEmpty()) batch.put(playerId, earned);
+                    } catch (IOException | IllegalStateException e) {
+                        LOGGER.warn("Skipping unreadable advancements file {}: {}", file, e.getMessage());
+                        failed++;
+                    }
+
+                    if (++scanned % BATCH_SIZE == 0) {
+                        apply(server, batch, changed, grants);
+                        batch = new HashMap<>();
+                    }
+                }
+            }
+            apply(server, batch, changed, grants);
+        }
+
+        int scannedFiles = scanned;
+        int failedFiles = failed;
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        server.execute(() -> {
+            if (!changed.isEmpty()) {
+                BadgeDataManager.savePlayerData();
+                BadgeNetworking.broadcastBadgeDataUpdates(server, changed);
+            }
+            String summary = String.format("Advancement backfill scanned %d players in %.1fs: %d badge(s) granted to %d player(s)%s",
+                    scannedFiles, seconds, grants[0], changed.size(),
+                    failedFiles > 0 ? ", " + failedFiles + " file(s) unreadable" : "");
+            LOGGER.info(summary);
+            source.sendFeedback(() -> Text.literal(summary), true);
+        });
+    }
+
+    private static void apply(MinecraftServer server, Map<UUID, List<Identifier>> batch, Set<UUID> changed, int[] grants) {
+        if (batch.isEmpty()) return;
+
+        server.execute(() -> {
+            for (Map.Entry<UUID, List<Identifier>> entry : batch.entrySet()) {
+                List<Identifier> added = BadgeDataManager.getPlayerData(entry.getKey()).addBadges(entry.getValue());
+                if (!added.isEmpty()) {
+                    changed.add(entry.getKey());
+                    grants[0] += added.size();
+                }
+            }
+        });
+    }
+
+    private static UUID parsePlayerId(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return UUID.fromString(name.substring(0, name.length() - ".json".length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Reads one advancements file token by token; only advancements in the index are inspected
+    private static List<Identifier> scan(Path file, Map<Identifier, int[]> advancementIndex,
+                                         BadgeRegistry.Snapshot registry) throws IOException {
+        List<Identifier> earned = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                // Non-advancement keys such as DataVersion do not parse and are skipped
+                Identifier advancementId = Identifier.tryParse(reader.nextName());
+                int[] ordinals = advancementId != null ? advancementIndex.get(advancementId) : null;
+                if (ordinals == null || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                if (readDone(reader)) {
+                    for (int ordinal : ordinals) {
+                        Badge badge = registry.getBadgeByOrdinal(ordinal);
+                        if (badge != null) earned.add(badge.getId());
+                    }
+                }
+            }
+            reader.endObject();
+        }
+        return earned;
+    }
+
+    private static boolean readDone(JsonReader reader) throws IOException {
+        boolean done = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("done") && reader.peek() == JsonToken.BOOLEAN) {
+                done = reader.nextBoolean();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return done;
+    }
+}
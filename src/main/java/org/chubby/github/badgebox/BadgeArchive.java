@@ -0,0 +1,210 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtSizeTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Cold storage for player records compacted out of player_data.dat. Records are grouped into 256
+// compressed NBT shards under config/badgebox/archive/ by the first byte of the UUID, and
+// index.dat lists which players are archived, so a lookup for anyone else never touches the disk.
+// A shard is only read when one of its players rejoins or is granted a badge; the restored record
+// moves back into live data. Read-only lookups treat archived players as absent. The index is
+// authoritative: shard entries missing from it are stale and are pruned the next time their shard
+// is rewritten.
+public final class BadgeArchive {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeArchive");
+    private static final int INDEX_MAGIC = 0x42424158; // "BBAX"
+    private static final Set<UUID> index = ConcurrentHashMap.newKeySet();
+    private static Path directory;
+    private static boolean indexDirty;
+
+    private BadgeArchive() {
+    }
+
+    public static synchronized void init(Path configDirectory) {
+        directory = configDirectory.resolve("archive");
+        index.clear();
+        indexDirty = false;
+        readIndex();
+    }
+
+    public static boolean contains(UUID playerId) {
+        return index.contains(playerId);
+    }
+
+    public static int size() {
+        return index.size();
+    }
+
+    // Write records to their shards and mark them archived. Called off the server thread; the
+    // lock is taken per shard so a restore never waits for a whole batch.
+    static void archive(Collection<PlayerBadgeData> records) throws IOException {
+        if (records.isEmpty()) return;
+
+        Map<Integer, List<PlayerBadgeData>> byShard = new TreeMap<>();
+        for (PlayerBadgeData data : records) {
+            byShard.computeIfAbsent(shardOf(data.getPlayerId()), shard -> new ArrayList<>()).add(data);
+        }
+
+        Files.createDirectories(directory);
+        for (Map.Entry<Integer, List<PlayerBadgeData>> entry : byShard.entrySet()) {
+            synchronized (BadgeArchive.class) {
+                // An unreadable shard aborts the batch rather than being overwritten
+                NbtCompound shard = readShard(entry.getKey());
+                if (shard == null) shard = new NbtCompound();
+                for (String key : new ArrayList<>(shard.getKeys())) {
+                    if (!isIndexed(key)) shard.remove(key);
+                }
+
+                for (PlayerBadgeData data : entry.getValue()) {
+                    shard.put(data.getPlayerId().toString(), data.toNbt());
+                }
+                writeShard(entry.getKey(), shard);
+
+                for (PlayerBadgeData data : entry.getValue()) {
+                    index.add(data.getPlayerId());
+                }
+                indexDirty = true;
+            }
+        }
+        flush();
+    }
+
+    // Move a record out of the archive. Returns null if the player is not archived or the shard
+    // cannot be read. The shard is read without the lock, so a restore on the server thread never
+    // waits for archive() to rewrite shards: shards are replaced atomically, and an indexed
+    // player is never pruned from one, so either version read still holds the record.
+    static PlayerBadgeData restore(UUID playerId) {
+        if (!index.contains(playerId)) return null;
+
+        NbtCompound shard;
+        try {
+            shard = readShard(shardOf(playerId));
+        } catch (IOException e) {
+            LOGGER.error("Failed to read the badge archive for {}", playerId, e);
+            return null;
+        }
+        String key = playerId.toString();
+        if (shard == null || !shard.contains(key)) {
+            LOGGER.warn("Archived player {} is missing from its shard", playerId);
+            return null;
+        }
+        PlayerBadgeData data = PlayerBadgeData.fromNbt(shard.getCompound(key));
+
+        synchronized (BadgeArchive.class) {
+            // Restored or forgotten by someone else while the shard was being read
+            if (!index.remove(playerId)) return null;
+            indexDirty = true;
+        }
+        LOGGER.info("Restored archived badge data for {}", playerId);
+        return data;
+    }
+
+    interface Visitor {
+        void visit(UUID playerId, PlayerBadgeData.Snapshot snapshot) throws IOException;
+    }
+
+    // Walk every archived record, one shard in memory at a time, skipping stale shard entries.
+    // Reads without the lock, like restore, so it can run alongside the server thread.
+    static void forEach(Visitor visitor) throws IOException {
+        if (directory == null || index.isEmpty()) return;
+
+        for (int shardIndex = 0; shardIndex < 256; shardIndex++) {
+            NbtCompound shard = readShard(shardIndex);
+            if (shard == null) continue;
+            for (String key : shard.getKeys()) {
+                if (isIndexed(key)) {
+                    visitor.visit(UUID.fromString(key), PlayerBadgeData.fromNbt(shard.getCompound(key)).snapshot());
+                }
+            }
+        }
+    }
+
+    // Forget archived copies that live data has superseded
+    static synchronized void forget(Collection<UUID> playerIds) {
+        if (index.removeAll(playerIds)) {
+            indexDirty = true;
+        }
+    }
+
+    // Persist the index if it changed since the last write
+    static synchronized void flush() {
+        if (!indexDirty || directory == null) return;
+
+        Path indexFile = directory.resolve("index.dat");
+        Path tempFile = directory.resolve("index.dat.tmp");
+        try {
+            Files.createDirectories(directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(index.size());
+                for (UUID playerId : index) {
+                    out.writeLong(playerId.getMostSignificantBits());
+                    out.writeLong(playerId.getLeastSignificantBits());
+                }
+            }
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            indexDirty = false;
+        } catch (IOException e) {
+            LOGGER.error("Failed to write the badge archive index", e);
+        }
+    }
+
+    private static void readIndex() {
+        Path indexFile = directory.resolve("index.dat");
+        if (!Files.exists(indexFile)) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC) {
+                LOGGER.error("Ignoring badge archive index with an unknown format");
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                index.add(new UUID(in.readLong(), in.readLong()));
+            }
+            LOGGER.info("Badge archive holds {} player records", index.size());
+        } catch (IOException e) {
+            LOGGER.error("Failed to read the badge archive index", e);
+        }
+    }
+
+    private static boolean isIndexed(String key) {
+        try {
+            return index.contains(UUID.fromString(key));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static int shardOf(UUID playerId) {
+        return (int) (playerId.getMostSignificantBits() >>> 56);
+    }
+
+    private static Path shardFile(int shard) {
+        return directory.resolve(String.format("%02x.dat", shard));
+    }
+
+    // Null if the shard does not exist yet
+    private static NbtCompound readShard(int shard) throws IOException {
+        Path file = shardFile(shard);
+        if (!Files.exists(file)) return null;
+        return NbtIo.readCompressed(file, NbtSizeTracker.ofUnlimitedBytes());
+    }
+
+    private static void writeShard(int shard, NbtCompound nbt) throws IOException {
+        Path file = shardFile(shard);
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        NbtIo.writeCompressed(nbt, tempFile);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,115 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs heavy admin queries on a small bounded pool and delivers their output back on the server
+// thread. A query that runs past the timeout is interrupted.
+public class BadgeAsyncCommands {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeAsyncCommands");
+    private static ThreadPoolExecutor executor;
+
+    @FunctionalInterface
+    public interface Query {
+        // Runs off the server thread. May read the given registry snapshot, player records through
+        // their immutable snapshots, and the store's query methods, which can hit the database;
+        // never modify records or touch the world or live player objects. Long scans should stop
+        // once the thread is interrupted.
+        List<Text> run(BadgeRegistry.Snapshot registry) throws Exception;
+    }
+
+    public static synchronized void start() {
+        if (executor != null) return;
+
+        BadgeConfig config = BadgeConfig.get();
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                config.asyncCommandThreads, config.asyncCommandThreads,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.asyncCommandQueueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "BadgeBox-Query-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized void stop() {
+        if (executor == null) return;
+
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    // Must be called on the server thread. Returns immediately; the query's lines are sent
+    // to the source once it finishes, or an error if it is rejected, fails or times out.
+    public static int submit(ServerCommandSource source, String name, Query query) {
+        ThreadPoolExecutor pool = executor;
+        if (pool == null) {
+            source.sendError(Text.literal("Badge queries are not available right now"));
+            return 0;
+        }
+
+        MinecraftServer server = source.getServer();
+        BadgeRegistry.Snapshot registry = BadgeRegistry.snapshot();
+        int timeoutSeconds = BadgeConfig.get().asyncCommandTimeoutSeconds;
+
+        CompletableFuture<List<Text>> future = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = pool.submit(() -> {
+                try {
+                    future.complete(query.run(registry));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            source.sendError(Text.literal("Too many badge queries are running, try again shortly"));
+            return 0;
+        }
+
+        future.orTimeout(timeoutSeconds, TimeUnit.SECONDS).whenComplete((lines, error) -> {
+            // Interrupt the worker so a runaway scan gives its thread back to later queries
+            if (error instanceof TimeoutException) task.cancel(true);
+            server.execute(() -> reply(source, name, timeoutSeconds, lines, error));
+        });
+
+        return 1;
+    }
+
+    // Loops in a query's own code call this once per step, so a timed-out query stops promptly.
+    // Never throws on the server thread, which is not interrupted.
+    public static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Badge query cancelled");
+        }
+    }
+
+    private static void reply(ServerCommandSource source, String name, int timeoutSeconds, List<Text> lines,
+                              Throwable error) {
+        if (error == null) {
+            for (Text line : lines) {
+                source.sendFeedback(() -> line, false);
+            }
+            return;
+        }
+
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            source.sendError(Text.literal("Badge " + name + " timed out after " + timeoutSeconds + "s"));
+        } else {
+            LOGGER.error("Badge {} query failed", name, cause);
+            source.sendError(Text.literal("Error running badge " + name + ": " + cause.getMessage()));
+        }
+    }
+}
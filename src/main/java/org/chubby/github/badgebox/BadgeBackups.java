@@ -0,0 +1,349 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.nbt.*;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Scheduled backups of player badge data under config/badgebox/backups/. A run writes either a
+// full base backup of every record or a differential one holding only the records changed since
+// the previous run. Changes are found through a dirty set that PlayerBadgeData marks on every
+// mutation, and a record whose content hash matches what was last written is skipped, so a
+// differential costs in proportion to churn. Every backupDiffsPerBase differentials a new base is
+// taken, and only the newest backupRetainBases bases and their differentials are kept.
+// Backups are named by their UTC time, yyyyMMdd-HHmmss; /badge restore <time> replays the base
+// and differentials up to that time, after taking a base of the current data.
+public class BadgeBackups {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeBackups");
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+    private static final String BASE_SUFFIX = ".base.dat";
+    private static final String DIFF_SUFFIX = ".diff.dat";
+
+    private record Backup(String name, boolean base, Path file) {
+    }
+
+    private static final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private static volatile boolean tracking;
+    private static ScheduledExecutorService executor;
+    private static MinecraftServer server;
+    private static Path directory;
+
+    // Only touched on the backup thread. Hashes are kept just for records written since the last
+    // base, so the map grows with churn rather than population.
+    private static final Map<UUID, Long> writtenHashes = new HashMap<>();
+    private static boolean baseTaken;
+    private static int diffsSinceBase;
+
+    // Call after player data is loaded
+    public static synchronized void start(MinecraftServer server) {
+        if (executor != null) return;
+
+        BadgeBackups.server = server;
+        directory = BadgeDataManager.getConfigDirectory().resolve("backups");
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BadgeBox-Backups");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int interval = BadgeConfig.get().backupIntervalMinutes;
+        if (interval > 0) {
+            tracking = true;
+            executor.scheduleWithFixedDelay(() -> runLogged(null), interval, interval, TimeUnit.MINUTES);
+        }
+    }
+
+    public static synchronized void stop() {
+        tracking = false;
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        server = null;
+        dirty.clear();
+        writtenHashes.clear();
+        baseTaken = false;
+        diffsSinceBase = 0;
+    }
+
+    // Called by PlayerBadgeData after every change; cheap enough for any thread
+    static void markDirty(UUID playerId) {
+        if (tracking) dirty.add(playerId);
+    }
+
+    // Names of the backups on disk, oldest first
+    public static List<String> listBackups() {
+        List<String> names = new ArrayList<>();
+        try {
+            for (Backup backup : scan()) {
+                names.add(backup.name());
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not list badge backups: {}", e.toString());
+        }
+        return names;
+    }
+
+    // Queue a backup now; the result is reported to the source
+    public static synchronized boolean requestBackup(ServerCommandSource source) {
+        if (executor == null) {
+            source.sendError(Text.literal("Backups are not available right now"));
+            return false;
+        }
+        executor.execute(() -> runLogged(source));
+        return true;
+    }
+
+    public static synchronized boolean requestRestore(ServerCommandSource source, String name) {
+        if (executor == null) {
+            source.sendError(Text.literal("Backups are not available right now"));
+            return false;
+        }
+        MinecraftServer target = server;
+        executor.execute(() -> {
+            try {
+                restore(target, source, name);
+            } catch (IOException | ExecutionException | RuntimeException e) {
+                LOGGER.error("Restoring badge backup {} failed", name, e);
+                target.execute(() -> source.sendError(Text.literal("Restore failed: " + e.getMessage())));
+            } catch (InterruptedException e) {
+                // Shutting down
+            }
+        });
+        return true;
+    }
+
+    private static void runLogged(ServerCommandSource source) {
+        MinecraftServer target = server;
+        try {
+            // Without dirty tracking there is nothing to diff against, so every run is a base
+            String summary = backup(!tracking);
+            if (source != null && target != null) {
+                target.execute(() -> source.sendFeedback(() -> Text.literal(summary), true));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Badge backup failed", e);
+            if (source != null && target != null) {
+                target.execute(() -> source.sendError(Text.literal("Backup failed: " + e.getMessage())));
+            }
+        }
+    }
+
+    // Backup thread only. Returns a one-line summary.
+    private static String backup(boolean forceBase) throws IOException {
+        long start = System.nanoTime();
+        boolean base = forceBase || !baseTaken || diffsSinceBase >= BadgeConfig.get().backupDiffsPerBase;
+        String name = NAME_FORMAT.format(Instant.now());
+        Path file = directory.resolve(name + (base ? BASE_SUFFIX : DIFF_SUFFIX));
+        if (Files.exists(directory.resolve(name + BASE_SUFFIX)) || Files.exists(directory.resolve(name + DIFF_SUFFIX))) {
+            return "A backup named " + name + " already exists, skipped";
+        }
+
+        NbtCompound players = new NbtCompound();
+        NbtList removed = new NbtList();
+        int examined;
+        if (base) {
+            // Changes made during the walk are marked again and go into the next differential
+            dirty.clear();
+            writtenHashes.clear();
+            examined = 0;
+            for (PlayerBadgeData data : BadgeDataManager.playerRecords()) {
+                players.put(data.getPlayerId().toString(), data.toNbt());
+                examined++;
+            }
+        } else {
+            List<UUID> changed = new ArrayList<>(dirty);
+            dirty.removeAll(changed);
+            examined = changed.size();
+            for (UUID playerId : changed) {
+                PlayerBadgeData data = BadgeDataManager.peekPlayerData(playerId);
+                if (data == null) {
+                    // Compacted away, or never had a record
+                    writtenHashes.remove(playerId);
+                    removed.add(NbtString.of(playerId.toString()));
+                    continue;
+                }
+                long hash = contentHash(data.snapshot());
+                Long previous = writtenHashes.put(playerId, hash);
+                if (previous == null || previous != hash) {
+                    players.put(playerId.toString(), data.toNbt());
+                }
+            }
+            if (players.isEmpty() && removed.isEmpty()) {
+                return "No badge data changed since the last backup";
+            }
+        }
+
+        NbtCompound root = new NbtCompound();
+        root.putBoolean("base", base);
+        root.putLong("time", System.currentTimeMillis());
+        root.put("players", players);
+        root.put("removed", removed);
+
+        Files.createDirectories(directory);
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        NbtIo.writeCompressed(root, tempFile);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (base) {
+            baseTaken = true;
+            diffsSinceBase = 0;
+            prune();
+        } else {
+            diffsSinceBase++;
+        }
+
+        String summary = String.format("Wrote %s backup %s: %d record(s) written, %d removed, %d examined, %d bytes in %d ms",
+                base ? "base" : "differential", name, players.getSize(), removed.size(), examined,
+                Files.size(file), (System.nanoTime() - start) / 1_000_000);
+        LOGGER.info(summary);
+        return summary;
+    }
+
+    // Keep the newest backupRetainBases bases, with the differentials taken after each of them
+    private static void prune() throws IOException {
+        List<Backup> backups = scan();
+        int bases = 0;
+        for (Backup backup : backups) {
+            if (backup.base()) bases++;
+        }
+
+        int excess = bases - BadgeConfig.get().backupRetainBases;
+        int seenBases = 0;
+        int deleted = 0;
+        for (Backup backup : backups) {
+            if (backup.base() && ++seenBases > excess) break;
+            // Anything before the first kept base, including differentials of deleted bases
+            Files.deleteIfExists(backup.file());
+            deleted++;
+        }
+        if (deleted > 0) {
+            LOGGER.info("Deleted {} expired badge backup(s)", deleted);
+        }
+    }
+
+    private static List<Backup> scan() throws IOException {
+        List<Backup> backups = new ArrayList<>();
+        if (directory == null || !Files.isDirectory(directory)) return backups;
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.dat")) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(BASE_SUFFIX)) {
+                    backups.add(new Backup(fileName.substring(0, fileName.length() - BASE_SUFFIX.length()), true, file));
+                } else if (fileName.endsWith(DIFF_SUFFIX)) {
+                    backups.add(new Backup(fileName.substring(0, fileName.length() - DIFF_SUFFIX.length()), false, file));
+                }
+            }
+        }
+        // The name format sorts chronologically
+        backups.sort(Comparator.comparing(Backup::name));
+        return backups;
+    }
+
+    private static void restore(MinecraftServer server, ServerCommandSource source, String name)
+            throws IOException, ExecutionException, InterruptedException {
+        List<Backup> backups = scan();
+        int target = -1;
+        for (int i = 0; i < backups.size(); i++) {
+            if (backups.get(i).name().equals(name)) target = i;
+        }
+        if (target < 0) {
+            server.execute(() -> source.sendError(Text.literal("No backup named " + name)));
+            return;
+        }
+        int first = target;
+        while (first >= 0 && !backups.get(first).base()) first--;
+        if (first < 0) {
+            server.execute(() -> source.sendError(Text.literal("The base backup for " + name + " no longer exists")));
+            return;
+        }
+
+        // Replay the chain before anything is written, since the safety backup may prune it
+        Map<String, NbtCompound> records = new HashMap<>();
+        for (int i = first; i <= target; i++) {
+            NbtCompound root = NbtIo.readCompressed(backups.get(i).file(), NbtSizeTracker.ofUnlimitedBytes());
+            NbtCompound players = root.getCompound("players");
+            for (String key : players.getKeys()) {
+                records.put(key, players.getCompound(key));
+            }
+            NbtList removed = root.getList("removed", NbtElement.STRING_TYPE);
+            for (int j = 0; j < removed.size(); j++) {
+                records.remove(removed.getString(j));
+            }
+        }
+
+        Map<UUID, PlayerBadgeData> restored = new HashMap<>(records.size() * 4 / 3 + 1);
+        for (Map.Entry<String, NbtCompound> entry : records.entrySet()) {
+            try {
+                restored.put(UUID.fromString(entry.getKey()), PlayerBadgeData.fromNbt(entry.getValue()));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid UUID in badge backup: {}", entry.getKey());
+            }
+        }
+
+        String safety = backup(true);
+        int chainLength = target - first + 1;
+        CompletableFuture.runAsync(() -> {
+            BadgeDataManager.replacePlayerData(restored);
+            BadgeExpiry.start();
+            BadgeDataManager.savePlayerData();
+
+            List<UUID> online = new ArrayList<>();
+            for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+                online.add(player.getUuid());
+            }
+            BadgeNetworking.broadcastBadgeDataUpdates(server, online);
+
+            String summary = String.format("Restored %d player record(s) from backup %s (%d file(s) replayed)",
+                    restored.size(), name, chainLength);
+            LOGGER.info(summary);
+            source.sendFeedback(() -> Text.literal(summary + ". " + safety), true);
+        }, server).get();
+
+        // The live data no longer follows the chain the dirty set was tracking
+        dirty.clear();
+        writtenHashes.clear();
+        baseTaken = false;
+    }
+
+    // 64-bit FNV-1a over the record's badges, expiries, display slots and name, independent of
+    // set iteration order
+    private static long contentHash(PlayerBadgeData.Snapshot snapshot) {
+        List<String> owned = new ArrayList<>(snapshot.ownedBadges().size());
+        for (Identifier badgeId : snapshot.ownedBadges()) {
+            owned.add(badgeId + "@" + snapshot.getExpiry(badgeId));
+        }
+        Collections.sort(owned);
+
+        long hash = 0xcbf29ce484222325L;
+        for (String badge : owned) {
+            hash = fnv(hash, badge);
+        }
+        for (Identifier badgeId : snapshot.displayBadges()) {
+            hash = fnv(hash, String.valueOf(badgeId));
+        }
+        return fnv(hash, snapshot.displayName());
+    }
+
+    private static long fnv(long hash, String value) {
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        // Separator, so adjacent strings cannot run together
+        return (hash ^ 0xff) * 0x100000001b3L;
+    }
+}
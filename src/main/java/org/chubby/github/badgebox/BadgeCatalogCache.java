@@ -0,0 +1,299 @@
+package org.chubby.github.badgebox;
+
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.ItemStack;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Formatting;
+import net.minecraft.util.Identifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Compiled form of the badge catalog. After badges.json is parsed successfully, the result is
+// written to badges.cache: badges in ordinal order with their item ids already validated, text
+// already split into styled segments, criteria, category definitions and the load's warnings.
+// The file is keyed by a SHA-256 of badges.json, categories.json, the mod version and the game
+// version; while the key matches, startup reads the cache instead of parsing JSON.
+// A cache that is stale, corrupt or names an item that no longer exists is ignored and rebuilt.
+public final class BadgeCatalogCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeCatalogCache");
+    private static final int MAGIC = 0x42424358; // "BBCX"
+    private static final int FORMAT_VERSION = 1;
+
+    private BadgeCatalogCache() {
+    }
+
+    // Load the catalog from the cache when it is current, otherwise from JSON, refreshing the cache
+    public static BadgeCatalogLoader.Result load(Path badgesFile, Path categoriesFile, Path cacheFile) {
+        byte[] key = computeKey(badgesFile, categoriesFile);
+        if (key != null) {
+            BadgeCatalogLoader.Result cached = read(cacheFile, key);
+            if (cached != null) return cached;
+        }
+
+        BadgeCatalogLoader.Result result = BadgeCatalogLoader.load(badgesFile, categoriesFile);
+        // Only cache what was actually parsed: skip if the files changed while we were reading them
+        if (!result.failed() && key != null && Arrays.equals(key, computeKey(badgesFile, categoriesFile))) {
+            write(cacheFile, key, result);
+        }
+        return result;
+    }
+
+    private static byte[] computeKey(Path badgesFile, Path categoriesFile) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modVersion().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(SharedConstants.getGameVersion().getName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            hashFile(digest, badgesFile);
+            if (categoriesFile != null && Files.exists(categoriesFile)) {
+                digest.update((byte) 1);
+                hashFile(digest, categoriesFile);
+            }
+            return digest.digest();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            LOGGER.warn("Could not hash the badge catalog, skipping the compiled cache: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static void hashFile(MessageDigest digest, Path file) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    // Tools running without the Fabric launcher have no mod metadata
+    private static String modVersion() {
+        try {
+            return FabricLoader.getInstance().getModContainer(Badgebox.MOD_ID)
+                    .map(container -> container.getMetadata().getVersion().getFriendlyString())
+                    .orElse("unknown");
+        } catch (RuntimeException e) {
+            return "unknown";
+        }
+    }
+
+    private static BadgeCatalogLoader.Result read(Path cacheFile, byte[] key) {
+        if (!Files.exists(cacheFile)) return null;
+
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            // Read onto the heap rather than mapped: a live mapping would keep write() from
+            // replacing the file on Windows until the buffer is collected
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) return null;
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) return null;
+            byte[] storedKey = new byte[key.length];
+            buffer.get(storedKey);
+            if (!Arrays.equals(storedKey, key)) return null;
+
+            int categoryCount = buffer.getInt();
+            List<BadgeCategory> categories = new ArrayList<>(categoryCount);
+            for (int i = 0; i < categoryCount; i++) {
+                String id = readString(buffer);
+                String displayName = readString(buffer);
+                String description = readString(buffer);
+                Identifier icon = readItem(buffer, true);
+                categories.add(new BadgeCategory(id, displayName, description, icon, buffer.getInt()));
+            }
+
+            int errorCount = buffer.getInt();
+            List<String> errors = new ArrayList<>(errorCount);
+            for (int i = 0; i < errorCount; i++) {
+                errors.add(readString(buffer));
+            }
+
+            int badgeCount = buffer.getInt();
+            List<Badge> badges = new ArrayList<>(badgeCount);
+            long buildNanos = 0;
+            for (int i = 0; i < badgeCount; i++) {
+                Identifier id = Identifier.of(readString(buffer));
+                String name = readString(buffer);
+                String category = readString(buffer);
+                boolean obtainable = buffer.get() != 0;
+                Identifier displayItem = readItem(buffer, false);
+                Identifier silhouetteItem = readItem(buffer, false);
+
+                int loreCount = buffer.getInt();
+                List<String> lore = new ArrayList<>(loreCount);
+                for (int j = 0; j < loreCount; j++) {
+                    lore.add(readString(buffer));
+                }
+
+                Badge.Appearance appearance = new Badge.Appearance(readString(buffer), buffer.getInt(),
+                        readOptionalId(buffer), readOptionalId(buffer), buffer.get() != 0);
+
+                int criteriaCount = buffer.getInt();
+                List<BadgeCriterion> criteria = new ArrayList<>(criteriaCount);
+                for (int j = 0; j < criteriaCount; j++) {
+                    criteria.add(new BadgeCriterion(BadgeCriterion.Type.values()[buffer.get()],
+                            readOptionalId(buffer), readOptionalId(buffer), buffer.getInt()));
+                }
+
+                List<BadgeText.Segment> nameSegments = readSegments(buffer);
+                List<List<BadgeText.Segment>> loreSegments = new ArrayList<>(loreCount);
+                for (int j = 0; j < loreCount; j++) {
+                    loreSegments.add(readSegments(buffer));
+                }
+                List<BadgeText.Segment> descriptionSegments = readSegments(buffer);
+
+                long buildStart = System.nanoTime();
+                badges.add(new Badge(id, name, lore, category,
+                        new ItemStack(Registries.ITEM.get(displayItem)), new ItemStack(Registries.ITEM.get(silhouetteItem)),
+                        obtainable, criteria, appearance,
+                        new Badge.ParsedText(nameSegments, List.copyOf(loreSegments), descriptionSegments)));
+                buildNanos += System.nanoTime() - buildStart;
+            }
+
+            long totalNanos = System.nanoTime() - start;
+            return new BadgeCatalogLoader.Result(badges, categories, errors, false,
+                    totalNanos - buildNanos, buildNanos, true);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Ignoring unreadable badge catalog cache {}: {}", cacheFile.getFileName(), e.toString());
+            return null;
+        }
+    }
+
+    private static void write(Path cacheFile, byte[] key, BadgeCatalogLoader.Result result) {
+        Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.write(key);
+
+            out.writeInt(result.categories().size());
+            for (BadgeCategory category : result.categories()) {
+                writeString(out, category.id());
+                writeString(out, category.displayName());
+                writeString(out, category.description());
+                writeOptionalId(out, category.icon());
+                out.writeInt(category.sortOrder());
+            }
+
+            out.writeInt(result.errors().size());
+            for (String error : result.errors()) {
+                writeString(out, error);
+            }
+
+            out.writeInt(result.badges().size());
+            for (Badge badge : result.badges()) {
+                writeString(out, badge.getId().toString());
+                writeString(out, badge.getName());
+                writeString(out, badge.getCategory());
+                out.writeBoolean(badge.isObtainable());
+                writeString(out, Registries.ITEM.getId(badge.getDisplayItemView().getItem()).toString());
+                writeString(out, Registries.ITEM.getId(badge.getSilhouetteItemView().getItem()).toString());
+
+                out.writeInt(badge.getLore().size());
+                for (String line : badge.getLore()) {
+                    writeString(out, line);
+                }
+
+                Badge.Appearance appearance = badge.getAppearance();
+                writeString(out, appearance.description());
+                out.writeInt(appearance.rarity());
+                writeOptionalId(out, appearance.texture());
+                writeOptionalId(out, appearance.silhouetteTexture());
+                out.writeBoolean(appearance.animated());
+
+                out.writeInt(badge.getCriteria().size());
+                for (BadgeCriterion criterion : badge.getCriteria()) {
+                    out.writeByte(criterion.type().ordinal());
+                    writeOptionalId(out, criterion.statType());
+                    writeOptionalId(out, criterion.target());
+                    out.writeInt(criterion.min());
+                }
+
+                Badge.ParsedText text = badge.getParsedText();
+                writeSegments(out, text.name());
+                for (List<BadgeText.Segment> line : text.lore()) {
+                    writeSegments(out, line);
+                }
+                writeSegments(out, text.description());
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write badge catalog cache: {}", e.toString());
+            return;
+        }
+
+        try {
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to replace badge catalog cache: {}", e.toString());
+        }
+    }
+
+    // Strings are an int byte length followed by UTF-8, which has no 64 KiB limit unlike writeUTF
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeOptionalId(DataOutputStream out, Identifier id) throws IOException {
+        writeString(out, id != null ? id.toString() : "");
+    }
+
+    private static Identifier readOptionalId(ByteBuffer buffer) {
+        String value = readString(buffer);
+        return value.isEmpty() ? null : Identifier.of(value);
+    }
+
+    // Items are checked against the live registry; a missing one invalidates the whole cache
+    private static Identifier readItem(ByteBuffer buffer, boolean optional) {
+        Identifier id = optional ? readOptionalId(buffer) : Identifier.of(readString(buffer));
+        if (id != null && !Registries.ITEM.containsId(id)) {
+            throw new IllegalArgumentException("item " + id + " is no longer registered");
+        }
+        return id;
+    }
+
+    // Each segment: text, color code (0 for the base style) and modifier bits
+    private static void writeSegments(DataOutputStream out, List<BadgeText.Segment> segments) throws IOException {
+        out.writeInt(segments.size());
+        for (BadgeText.Segment segment : segments) {
+            writeString(out, segment.text());
+            out.writeChar(segment.color() != null ? segment.color().getCode() : 0);
+            out.writeByte(segment.modifiers());
+        }
+    }
+
+    private static List<BadgeText.Segment> readSegments(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<BadgeText.Segment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String text = readString(buffer);
+            char code = buffer.getChar();
+            Formatting color = code != 0 ? Formatting.byCode(code) : null;
+            segments.add(new BadgeText.Segment(text, color, buffer.get()));
+        }
+        return List.copyOf(segments);
+    }
+}
@@ -0,0 +1,111 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.util.Identifier;
+
+import java.util.*;
+
+// Structural diff between the installed catalog and a freshly loaded one. Unchanged badges are
+// carried over as the installed objects, so merged() can be installed without disturbing
+// anything that holds on to them.
+public record BadgeCatalogDiff(List<Badge> merged, List<Badge> added, List<Badge> modified, List<Badge> removed,
+                               List<String> categories, List<String> addedCategories, List<String> removedCategories,
+                               List<String> redefinedCategories, boolean reordered, boolean criteriaChanged) {
+
+    static BadgeCatalogDiff compute(BadgeRegistry.Snapshot before, List<Badge> loaded,
+                                    List<BadgeCategory> definitions) {
+        Map<Identifier, Badge> loadedById = new LinkedHashMap<>();
+        for (Badge badge : loaded) {
+            loadedById.put(badge.getId(), badge);
+        }
+
+        List<Badge> merged = new ArrayList<>(loadedById.size());
+        List<Badge> added = new ArrayList<>();
+        List<Badge> modified = new ArrayList<>();
+        boolean criteriaChanged = false;
+        for (Badge badge : loadedById.values()) {
+            Badge old = before.getBadge(badge.getId());
+            if (old == null) {
+                added.add(badge);
+                merged.add(badge);
+                criteriaChanged |= badge.isObtainable() && !badge.getCriteria().isEmpty();
+            } else if (old.sameDefinition(badge)) {
+                merged.add(old);
+            } else {
+                modified.add(badge);
+                merged.add(badge);
+                criteriaChanged |= old.isObtainable() != badge.isObtainable()
+                        || !old.getCriteria().equals(badge.getCriteria());
+            }
+        }
+
+        List<Badge> removed = new ArrayList<>();
+        for (Badge old : before.badgesInOrder()) {
+            if (!loadedById.containsKey(old.getId())) {
+                removed.add(old);
+                criteriaChanged |= !old.getCriteria().isEmpty();
+            }
+        }
+
+        List<String> categories = BadgeRegistry.categoryOrder(merged, definitions);
+        Set<String> oldCategories = before.categories().keySet();
+        List<String> addedCategories = new ArrayList<>();
+        for (String category : categories) {
+            if (!oldCategories.contains(category)) addedCategories.add(category);
+        }
+        List<String> removedCategories = new ArrayList<>();
+        for (String category : oldCategories) {
+            if (!categories.contains(category)) removedCategories.add(category);
+        }
+
+        // Categories whose categories.json entry was added, removed or edited
+        Map<String, BadgeCategory> newDefinitions = BadgeRegistry.definitionMap(definitions);
+        Set<String> defined = new HashSet<>(newDefinitions.keySet());
+        defined.addAll(before.categoryDefinitions().keySet());
+        List<String> redefinedCategories = new ArrayList<>();
+        for (String category : defined) {
+            if (!Objects.equals(newDefinitions.get(category), before.categoryDefinitions().get(category))) {
+                redefinedCategories.add(category);
+            }
+        }
+
+        // Same badges in a different order still need installing, for paging and category order
+        boolean reordered = false;
+        List<Badge> oldOrder = before.badgesInOrder();
+        if (added.isEmpty() && removed.isEmpty()) {
+            for (int i = 0; i < merged.size() && !reordered; i++) {
+                reordered = !merged.get(i).getId().equals(oldOrder.get(i).getId());
+            }
+        }
+
+        return new BadgeCatalogDiff(merged, added, modified, removed, categories, addedCategories,
+                removedCategories, redefinedCategories, reordered, criteriaChanged);
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && modified.isEmpty() && removed.isEmpty() && redefinedCategories.isEmpty() && !reordered;
+    }
+
+    // Ids of every added, modified or removed badge
+    public Set<Identifier> changedIds() {
+        Set<Identifier> ids = new HashSet<>();
+        for (Badge badge : added) ids.add(badge.getId());
+        for (Badge badge : modified) ids.add(badge.getId());
+        for (Badge badge : removed) ids.add(badge.getId());
+        return ids;
+    }
+
+    // Categories that gained, lost or changed a badge, including a modified badge's old category
+    public Set<String> changedCategories(BadgeRegistry.Snapshot before) {
+        Set<String> changed = new HashSet<>(addedCategories);
+        changed.addAll(removedCategories);
+        changed.addAll(redefinedCategories);
+        for (Badge badge : added) changed.add(badge.getCategory());
+        for (Badge badge : removed) changed.add(badge.getCategory());
+        for (Badge badge : modified) {
+            changed.add(badge.getCategory());
+            Badge old = before.getBadge(badge.getId());
+            if (old != null) changed.add(old.getCategory());
+        }
+        return changed;
+    }
+}
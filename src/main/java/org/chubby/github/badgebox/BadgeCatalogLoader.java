@@ -0,0 +1,348 @@
+package org.chubby.github.badgebox;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Reads badges.json (and categories.json, if present) into a list of Badges without touching
+// BadgeRegistry, so it can run on any thread and the result can be installed in one step.
+// Both files are streamed entry by entry, never held as a whole tree. Two schemas are accepted:
+//   v1: {"version": ..., "badges": {"<id>": {"name", "category", "display_item", "silhouette_item",
+//        "lore": {"0": ..., "1": ...}, ...}}}
+//   v2: {"<id>": {"id", "name", "category", "description", "texture", "silhouetteTexture",
+//        "rarity", "animated", "lore": [...], ...}}
+// so a top-level "badges" object is always read as a v1 section. Problems are reported per
+// entry; a broken entry is skipped, a broken file fails the whole load.
+public final class BadgeCatalogLoader {
+
+    // parseNanos and buildNanos cover reading and building the badges; fromCache is set when
+    // they came from the compiled cache rather than the JSON files
+    public record Result(List<Badge> badges, List<BadgeCategory> categories, List<String> errors, boolean failed,
+                         long parseNanos, long buildNanos, boolean fromCache) {
+        static Result failure(String error, long parseNanos) {
+            return new Result(List.of(), List.of(), List.of(error), true, parseNanos, 0, false);
+        }
+    }
+
+    // Fields of one badge entry as read from the file, before validation
+    private static final class Entry {
+        String id;
+        String name;
+        String category;
+        String description = "";
+        String displayItem;
+        String silhouetteItem;
+        String texture;
+        String silhouetteTexture;
+        String advancement;
+        boolean obtainable = true;
+        boolean animated;
+        int rarity;
+        List<String> lore = List.of();
+        JsonElement criteria;
+        boolean invalid;
+    }
+
+    private BadgeCatalogLoader() {
+    }
+
+    public static Result load(Path badgesFile) {
+        return load(badgesFile, null);
+    }
+
+    public static Result load(Path badgesFile, Path categoriesFile) {
+        long start = System.nanoTime();
+        List<String> errors = new ArrayList<>();
+
+        Map<String, BadgeCategory> categories = new LinkedHashMap<>();
+        if (categoriesFile != null && Files.exists(categoriesFile)) {
+            try (JsonReader reader = new JsonReader(Files.newBufferedReader(categoriesFile, StandardCharsets.UTF_8))) {
+                readCategories(reader, categories, errors);
+            } catch (IOException | JsonParseException | IllegalStateException e) {
+                return Result.failure("Failed to read " + categoriesFile.getFileName() + ": " + e.getMessage(),
+                        System.nanoTime() - start);
+            }
+        }
+
+        List<Badge> badges = new ArrayList<>();
+        long[] buildNanos = new long[1];
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(badgesFile, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if (key.equals("version")) {
+                    reader.skipValue();
+                } else if (key.equals("badges") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        readBadge(reader, reader.nextName(), true, categories, badges, errors, buildNanos);
+                    }
+                    reader.endObject();
+                } else {
+                    readBadge(reader, key, false, categories, badges, errors, buildNanos);
+                }
+            }
+            reader.endObject();
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            return Result.failure("Failed to read " + badgesFile.getFileName() + ": " + e.getMessage(),
+                    System.nanoTime() - start);
+        }
+
+        List<BadgeCategory> sortedCategories = new ArrayList<>(categories.values());
+        sortedCategories.sort(Comparator.comparingInt(BadgeCategory::sortOrder));
+        return new Result(badges, List.copyOf(sortedCategories), errors, false,
+                System.nanoTime() - start - buildNanos[0], buildNanos[0], false);
+    }
+
+    private static void readCategories(JsonReader reader, Map<String, BadgeCategory> categories,
+                                       List<String> errors) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                errors.add("Category " + key + ": entry is not an object");
+                reader.skipValue();
+                continue;
+            }
+
+            String id = key;
+            String displayName = null;
+            String description = "";
+            String icon = null;
+            int sortOrder = Integer.MAX_VALUE;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                try {
+                    switch (field) {
+                        case "id" -> id = reader.nextString();
+                        case "displayName" -> displayName = reader.nextString();
+                        case "description" -> description = reader.nextString();
+                        case "icon" -> icon = reader.nextString();
+                        case "sortOrder" -> sortOrder = reader.nextInt();
+                        default -> reader.skipValue();
+                    }
+                } catch (IllegalStateException | NumberFormatException e) {
+                    errors.add("Category " + key + ": ignoring invalid " + field);
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            Identifier iconId = null;
+            if (icon != null) {
+                iconId = Identifier.tryParse(icon);
+                if (iconId == null || !Registries.ITEM.containsId(iconId)) {
+                    errors.add("Category " + key + ": unknown icon " + icon);
+                    iconId = null;
+                }
+            }
+            if (id.isEmpty()) {
+                errors.add("Category " + key + ": empty id");
+                continue;
+            }
+            if (displayName == null) {
+                displayName = id.substring(0, 1).toUpperCase() + id.substring(1).replace("_", " ");
+            }
+            categories.put(id, new BadgeCategory(id, displayName, description, iconId, sortOrder));
+        }
+        reader.endObject();
+    }
+
+    private static void readBadge(JsonReader reader, String key, boolean legacy, Map<String, BadgeCategory> categories,
+                                  List<Badge> badges, List<String> errors, long[] buildNanos) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            errors.add("Badge " + key + ": entry is not an object");
+            reader.skipValue();
+            return;
+        }
+
+        Entry entry = new Entry();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            try {
+                switch (field) {
+                    case "id" -> entry.id = reader.nextString();
+                    case "name" -> entry.name = reader.nextString();
+                    case "category" -> entry.category = reader.nextString();
+                    case "description" -> entry.description = reader.nextString();
+                    case "display_item", "displayItem" -> entry.displayItem = reader.nextString();
+                    case "silhouette_item", "silhouetteItem" -> entry.silhouetteItem = reader.nextString();
+                    case "texture" -> entry.texture = reader.nextString();
+                    case "silhouetteTexture" -> entry.silhouetteTexture = reader.nextString();
+                    case "advancement" -> entry.advancement = reader.nextString();
+                    case "obtainable" -> entry.obtainable = reader.nextBoolean();
+                    case "animated" -> entry.animated = reader.nextBoolean();
+                    case "rarity" -> entry.rarity = reader.nextInt();
+                    case "lore" -> entry.lore = readLore(reader, key, errors);
+                    // Criteria are small; parse them as a tree and reuse BadgeCriterion.fromJson
+                    case "criteria" -> entry.criteria = JsonParser.parseReader(reader);
+                    default -> reader.skipValue();
+                }
+            } catch (IllegalStateException | NumberFormatException e) {
+                errors.add("Badge " + key + ": invalid " + field + " (" + e.getMessage() + ")");
+                entry.invalid = true;
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        long start = System.nanoTime();
+        try {
+            Badge badge = createBadge(key, entry, legacy, categories, errors);
+            if (badge != null) badges.add(badge);
+        } catch (RuntimeException e) {
+            errors.add("Badge " + key + ": " + e.getMessage());
+        }
+        buildNanos[0] += System.nanoTime() - start;
+    }
+
+    // v1 lore is an object keyed "0", "1", ...; v2 lore is an array
+    private static List<String> readLore(JsonReader reader, String key, List<String> errors) throws IOException {
+        List<String> lore = new ArrayList<>();
+        if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readLoreLine(reader, key, lore, errors);
+            }
+            reader.endArray();
+        } else if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+            Map<Integer, String> byIndex = new HashMap<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String index = reader.nextName();
+                List<String> line = new ArrayList<>(1);
+                readLoreLine(reader, key, line, errors);
+                try {
+                    if (!line.isEmpty()) byIndex.put(Integer.parseInt(index), line.get(0));
+                } catch (NumberFormatException e) {
+                    errors.add("Badge " + key + ": ignoring lore key " + index);
+                }
+            }
+            reader.endObject();
+            // Same as the old loader: lines are read from "0" until the first gap
+            for (int i = 0; byIndex.containsKey(i); i++) {
+                lore.add(byIndex.get(i));
+            }
+        } else {
+            errors.add("Badge " + key + ": ignoring lore that is neither an array nor an object");
+            reader.skipValue();
+        }
+        return lore;
+    }
+
+    private static void readLoreLine(JsonReader reader, String key, List<String> lore, List<String> errors)
+            throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            lore.add(reader.nextString());
+        } else {
+            errors.add("Badge " + key + ": ignoring lore line that is not a string");
+            reader.skipValue();
+        }
+    }
+
+    private static Badge createBadge(String key, Entry entry, boolean legacy, Map<String, BadgeCategory> categories,
+                                     List<String> errors) {
+        if (entry.invalid) return null;
+
+        String rawId = entry.id != null ? entry.id : key;
+        if (entry.id != null && !entry.id.equals(key)) {
+            errors.add("Badge " + key + ": id " + entry.id + " does not match its key");
+            return null;
+        }
+        Identifier id = rawId.indexOf(':') >= 0 ? Identifier.tryParse(rawId)
+                : Identifier.tryParse(Badgebox.MOD_ID + ":" + rawId);
+        if (id == null) {
+            errors.add("Badge " + key + ": invalid id");
+            return null;
+        }
+
+        if (entry.name == null || entry.category == null) {
+            errors.add("Badge " + key + ": missing " + (entry.name == null ? "name" : "category"));
+            return null;
+        }
+        // v1 entries have always required both items; v2 entries fall back to the category icon
+        if (legacy && (entry.displayItem == null || entry.silhouetteItem == null)) {
+            errors.add("Badge " + key + ": missing " + (entry.displayItem == null ? "display_item" : "silhouette_item"));
+            return null;
+        }
+        if (!categories.isEmpty() && !categories.containsKey(entry.category)) {
+            errors.add("Badge " + key + ": category " + entry.category + " is not defined in categories.json");
+        }
+        if (entry.rarity < 0) {
+            errors.add("Badge " + key + ": ignoring negative rarity " + entry.rarity);
+            entry.rarity = 0;
+        }
+
+        BadgeCategory category = categories.get(entry.category);
+        Item fallback = category != null && category.icon() != null ? Registries.ITEM.get(category.icon()) : Items.PAPER;
+        ItemStack displayItem = entry.displayItem != null ? createItemFromString(key, entry.displayItem, errors)
+                : new ItemStack(fallback);
+        ItemStack silhouetteItem = entry.silhouetteItem != null ? createItemFromString(key, entry.silhouetteItem, errors)
+                : new ItemStack(Items.GRAY_DYE);
+
+        Badge.Appearance appearance = new Badge.Appearance(entry.description, entry.rarity,
+                parseTexture(key, "texture", entry.texture, errors),
+                parseTexture(key, "silhouetteTexture", entry.silhouetteTexture, errors), entry.animated);
+
+        // Load automatic award criteria; a bad entry is skipped without losing the badge
+        List<BadgeCriterion> criteria = new ArrayList<>();
+        if (entry.advancement != null) {
+            Identifier advancementId = Identifier.tryParse(entry.advancement);
+            if (advancementId != null) {
+                criteria.add(BadgeCriterion.advancement(advancementId));
+            } else {
+                errors.add("Badge " + key + ": ignoring invalid advancement " + entry.advancement);
+            }
+        }
+        if (entry.criteria != null) {
+            if (!entry.criteria.isJsonArray()) {
+                errors.add("Badge " + key + ": ignoring criteria that is not an array");
+            } else {
+                for (JsonElement element : entry.criteria.getAsJsonArray()) {
+                    try {
+                        criteria.add(BadgeCriterion.fromJson(element.getAsJsonObject()));
+                    } catch (RuntimeException e) {
+                        errors.add("Badge " + key + ": ignoring criterion " + element + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        return new Badge(id, entry.name, entry.lore, entry.category, displayItem, silhouetteItem, entry.obtainable,
+                criteria, appearance);
+    }
+
+    private static Identifier parseTexture(String key, String field, String texture, List<String> errors) {
+        if (texture == null) return null;
+        Identifier id = Identifier.tryParse(texture);
+        if (id == null) {
+            errors.add("Badge " + key + ": ignoring invalid " + field + " " + texture);
+        }
+        return id;
+    }
+
+    private static ItemStack createItemFromString(String badgeId, String itemString, List<String> errors) {
+        Identifier itemId = Identifier.tryParse(itemString);
+        if (itemId == null || !Registries.ITEM.containsId(itemId)) {
+            errors.add("Badge " + badgeId + ": unknown item " + itemString + ", using stone");
+            return new ItemStack(Items.STONE);
+        }
+        return new ItemStack(Registries.ITEM.get(itemId));
+    }
+}
@@ -0,0 +1,201 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Runtime catalog reloads. badges.json and categories.json are parsed and validated on a
+// background thread; the prepared catalog is diffed against the installed one and applied on the
+// server thread at the end of the next tick. Unchanged badges keep their objects and ordinals, and
+// only players with a badge screen showing a changed badge get a refresh. Badge screens are built
+// on the server, so clients need no copy of the catalog.
+// Reloads come from /badge reload or, when watchCatalog is enabled, from a WatchService on the
+// config directory.
+public class BadgeCatalogReloader {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeCatalogReloader");
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    private record Prepared(BadgeCatalogLoader.Result result, List<ServerCommandSource> requesters) {
+    }
+
+    private static final AtomicReference<Prepared> prepared = new AtomicReference<>();
+    private static final List<ServerCommandSource> waiting = new ArrayList<>();
+    private static ExecutorService parser;
+    private static Thread watcher;
+    private static boolean parseQueued;
+    private static volatile boolean watching;
+
+    public static synchronized void start() {
+        if (parser != null) return;
+
+        parser = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BadgeBox-Catalog");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (BadgeConfig.get().watchCatalog) {
+            startWatcher(BadgeDataManager.getConfigDirectory());
+        }
+    }
+
+    public static synchronized void stop() {
+        watching = false;
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher = null;
+        }
+        if (parser != null) {
+            parser.shutdownNow();
+            parser = null;
+        }
+        prepared.set(null);
+        waiting.clear();
+    }
+
+    // Queue a reload; the result is reported to the source, if any, once it is installed.
+    // Requests made while a parse is still queued share that parse.
+    public static synchronized boolean requestReload(ServerCommandSource source) {
+        if (parser == null) return false;
+
+        if (source != null) waiting.add(source);
+        if (!parseQueued) {
+            parseQueued = true;
+            parser.execute(BadgeCatalogReloader::parse);
+        }
+        return true;
+    }
+
+    private static void parse() {
+        List<ServerCommandSource> requesters;
+        synchronized (BadgeCatalogReloader.class) {
+            requesters = new ArrayList<>(waiting);
+            waiting.clear();
+            parseQueued = false;
+        }
+
+        BadgeCatalogLoader.Result result = BadgeDataManager.loadCatalog();
+
+        // A result the server has not installed yet is superseded; its requesters get this one
+        Prepared previous = prepared.getAndSet(null);
+        if (previous != null) requesters.addAll(previous.requesters());
+        prepared.set(new Prepared(result, requesters));
+    }
+
+    // Called on the server thread at the end of every tick
+    public static void tick(MinecraftServer server) {
+        Prepared next = prepared.getAndSet(null);
+        if (next == null) return;
+
+        BadgeCatalogLoader.Result result = next.result();
+        if (result.failed()) {
+            LOGGER.error("Badge catalog reload failed, keeping the current catalog: {}", result.errors().get(0));
+            for (ServerCommandSource source : next.requesters()) {
+                source.sendError(Text.literal("Reload failed, keeping the current badges: " + result.errors().get(0)));
+            }
+            return;
+        }
+
+        long start = System.nanoTime();
+        BadgeRegistry.Snapshot before = BadgeRegistry.snapshot();
+        BadgeCatalogDiff diff = BadgeRegistry.apply(result.badges(), result.categories());
+        if (diff.criteriaChanged()) {
+            BadgeCriteria.rebuild();
+        }
+        long swapNanos = System.nanoTime() - start;
+
+        int refreshed = 0;
+        if (!diff.isEmpty()) {
+            refreshed = refreshScreens(server, diff.changedIds(), diff.changedCategories(before));
+        }
+
+        String summary = String.format(
+                "Reloaded %d badges: %d added, %d modified, %d removed, %d categor%s added, %d removed: parse %.1f ms, validate %.1f ms, swap %.2f ms, %d screen(s) refreshed, %d error(s)",
+                diff.merged().size(), diff.added().size(), diff.modified().size(), diff.removed().size(),
+                diff.addedCategories().size(), diff.addedCategories().size() == 1 ? "y" : "ies",
+                diff.removedCategories().size(), result.parseNanos() / 1_000_000.0,
+                result.buildNanos() / 1_000_000.0, swapNanos / 1_000_000.0, refreshed, result.errors().size());
+        LOGGER.info(summary);
+        BadgeDataManager.logCatalogErrors(result);
+
+        for (ServerCommandSource source : next.requesters()) {
+            source.sendFeedback(() -> Text.literal(summary), true);
+            for (int i = 0; i < Math.min(MAX_REPORTED_ERRORS, result.errors().size()); i++) {
+                source.sendError(Text.literal(result.errors().get(i)));
+            }
+        }
+    }
+
+    private static int refreshScreens(MinecraftServer server, Set<Identifier> changed, Set<String> changedCategories) {
+        int refreshed = 0;
+        for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+            ScreenHandler handler = player.currentScreenHandler;
+            if (handler instanceof BadgeEditorScreenHandler editor && editor.isAffectedBy(changed, changedCategories)) {
+                editor.refreshAfterCatalogChange();
+            } else if (handler instanceof BadgeDisplayScreenHandler display && display.isAffectedBy(changed)) {
+                display.refreshDisplay();
+            } else {
+                continue;
+            }
+            handler.sendContentUpdates();
+            refreshed++;
+        }
+        return refreshed;
+    }
+
+    private static void startWatcher(Path directory) {
+        WatchService watchService;
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            LOGGER.error("Failed to watch {} for badge catalog changes", directory, e);
+            return;
+        }
+
+        long debounceMillis = BadgeConfig.get().catalogReloadDebounceMillis;
+        Path badgesFileName = BadgeDataManager.getBadgesFile().getFileName();
+        Path categoriesFileName = BadgeDataManager.getCategoriesFile().getFileName();
+        watching = true;
+        watcher = new Thread(() -> {
+            try (watchService) {
+                while (watching) {
+                    WatchKey key = watchService.take();
+                    boolean relevant = false;
+                    do {
+                        for (WatchEvent<?> event : key.pollEvents()) {
+                            if (badgesFileName.equals(event.context()) || categoriesFileName.equals(event.context())) {
+                                relevant = true;
+                            }
+                        }
+                        key.reset();
+                        // Editors write in several steps; wait for the file to settle before parsing
+                    } while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null);
+
+                    if (relevant) {
+                        LOGGER.info("Badge catalog changed, reloading badges");
+                        requestReload(null);
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Shutting down
+            } catch (IOException e) {
+                LOGGER.error("Badge catalog watcher failed", e);
+            }
+        }, "BadgeBox-CatalogWatcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        LOGGER.info("Watching {} for badge catalog changes", directory);
+    }
+}
@@ -0,0 +1,8 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.util.Identifier;
+
+// A category definition from categories.json. Categories without one are still usable; they
+// just get a generated name and icon and sort after the defined ones.
+public record BadgeCategory(String id, String displayName, String description, Identifier icon, int sortOrder) {
+}
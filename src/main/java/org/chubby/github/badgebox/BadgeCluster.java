@@ -0,0 +1,542 @@
+package org.chubby.github.badgebox;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.Identifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Multi-server mode. Servers configured with the same sharedDirectory and distinct nodeIds share
+// badge changes through append-only logs: each node appends one JSON line per changed player to
+// <sharedDirectory>/<nodeId>.<generation>.log and tails the newest log of every other node.
+// A line carries the player's whole record, so applying it is idempotent, and concurrent edits to
+// one player resolve last writer wins by the time of the edit, then node id. Remote records are
+// applied on the server thread, a batch per poll, and synced to clients.
+// A log that outgrows clusterCompactMegabytes is rewritten as the next generation with only the
+// newest line per player, so catching up costs one line per player rather than the whole history.
+// Each node still keeps its own player data; the read position in every other log is saved once
+// the records holding those changes are committed, in cluster_offsets.json, so a restarted node
+// replays only what it missed and a new node catches up from the start of every log. Versions are
+// not persisted, so after a crash a replayed line wins over a local edit that raced it within one
+// poll interval.
+public class BadgeCluster {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeCluster");
+    private static final Gson GSON = new Gson();
+    private static final String LOG_SUFFIX = ".log";
+    private static final int READ_CHUNK = 64 * 1024;
+
+    private record Version(long time, String node) {
+        boolean isNewerThan(Version other) {
+            return other == null || time > other.time || time == other.time && node.compareTo(other.node) > 0;
+        }
+    }
+
+    private record Change(UUID playerId, Version version, PlayerBadgeData.Snapshot snapshot) {
+    }
+
+    // Changes read from one node's log, and the position just past them
+    private record Batch(String node, String logName, long offset, List<Change> changes) {
+    }
+
+    // <node>.<generation>.log; node ids cannot contain a dot
+    private record LogFile(Path path, String node, long generation) {
+        static LogFile parse(Path path) {
+            String name = path.getFileName().toString();
+            if (!name.endsWith(LOG_SUFFIX)) return null;
+            String stem = name.substring(0, name.length() - LOG_SUFFIX.length());
+            int dot = stem.lastIndexOf('.');
+            if (dot <= 0) return null;
+            try {
+                return new LogFile(path, stem.substring(0, dot), Long.parseLong(stem.substring(dot + 1)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        String name() {
+            return path.getFileName().toString();
+        }
+    }
+
+    // Local edits not yet published, with the time of the latest one
+    private static final Map<UUID, Long> dirty = new ConcurrentHashMap<>();
+    // Latest published or applied change per player
+    private static final Map<UUID, Version> versions = new ConcurrentHashMap<>();
+    // Read positions by log file name: tailed on the cluster thread, applied on the server thread
+    private static final Map<String, Long> readOffsets = new HashMap<>();
+    private static final Map<String, Long> appliedOffsets = new ConcurrentHashMap<>();
+
+    // Guards the own log, which publishing appends to and compaction replaces
+    private static final Object publishLock = new Object();
+    private static Writer log;
+    private static long logGeneration;
+    private static long logBytes;
+    private static long compactAtBytes;
+
+    private static volatile boolean enabled;
+    // A batch handed to the server thread and not applied yet
+    private static volatile boolean applyPending;
+    private static ScheduledExecutorService executor;
+    private static MinecraftServer server;
+    private static String nodeId;
+    private static Path directory;
+    private static Path offsetsFile;
+
+    // Call after player data is loaded
+    public static synchronized void start(MinecraftServer server) {
+        BadgeConfig config = BadgeConfig.get();
+        if (executor != null || config.nodeId.isEmpty() || config.sharedDirectory.isEmpty()) return;
+
+        BadgeCluster.server = server;
+        nodeId = config.nodeId;
+        directory = Path.of(config.sharedDirectory);
+        offsetsFile = BadgeDataManager.getConfigDirectory().resolve("cluster_offsets.json");
+        try {
+            Files.createDirectories(directory);
+            synchronized (publishLock) {
+                logGeneration = 0;
+                for (LogFile file : listLogs()) {
+                    if (file.node().equals(nodeId)) logGeneration = Math.max(logGeneration, file.generation());
+                }
+                deleteOldGenerations();
+                Path path = logPath(logGeneration);
+                log = openLog(path);
+                logBytes = Files.size(path);
+                compactAtBytes = compactLimit();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to open the shared badge log in {}, running standalone", directory, e);
+            return;
+        }
+        readOffsets.clear();
+        readOffsets.putAll(readCheckpoint());
+        appliedOffsets.clear();
+        appliedOffsets.putAll(readOffsets);
+
+        enabled = true;
+        applyPending = false;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BadgeBox-Cluster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(BadgeCluster::poll, 0, config.clusterPollMillis, TimeUnit.MILLISECONDS);
+        LOGGER.info("Sharing badge changes as node {} through {}", nodeId, directory);
+    }
+
+    // Publishes whatever is still pending, then stops tailing. Call before the final save.
+    public static synchronized void stop() {
+        if (executor == null) return;
+
+        enabled = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        publish();
+        synchronized (publishLock) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                LOGGER.error("Failed to close the shared badge log", e);
+            }
+            log = null;
+        }
+        executor = null;
+        server = null;
+        dirty.clear();
+        versions.clear();
+    }
+
+    // Called for every local change to a record; cheap enough for any thread
+    static void markDirty(UUID playerId) {
+        if (enabled) dirty.merge(playerId, System.currentTimeMillis(), Math::max);
+    }
+
+    // Capture the read positions of the changes applied so far, before the records are saved.
+    // The returned action writes them; run it only once the save has committed. Null when the
+    // cluster has nothing to record.
+    static Runnable prepareCheckpoint() {
+        Path file = offsetsFile;
+        if (file == null || appliedOffsets.isEmpty()) return null;
+
+        Map<String, Long> offsets = new TreeMap<>(appliedOffsets);
+        return () -> writeCheckpoint(file, offsets);
+    }
+
+    private static void writeCheckpoint(Path file, Map<String, Long> offsets) {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                GSON.toJson(offsets, writer);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.error("Failed to save shared badge log positions", e);
+        }
+    }
+
+    private static Map<String, Long> readCheckpoint() {
+        if (!Files.exists(offsetsFile)) return Map.of();
+
+        try (Reader reader = Files.newBufferedReader(offsetsFile, StandardCharsets.UTF_8)) {
+            Map<String, Long> offsets = GSON.fromJson(reader, new TypeToken<Map<String, Long>>() {}.getType());
+            return offsets != null ? offsets : Map.of();
+        } catch (IOException | JsonParseException e) {
+            LOGGER.error("Failed to read shared badge log positions, replaying every log", e);
+            return Map.of();
+        }
+    }
+
+    private static void poll() {
+        try {
+            publish();
+            compactIfNeeded();
+            tail();
+        } catch (Exception e) {
+            LOGGER.error("Shared badge log poll failed", e);
+        }
+    }
+
+    // Cluster thread, or the stopping server thread once the cluster thread has finished
+    private static void publish() {
+        synchronized (publishLock) {
+            if (log == null || dirty.isEmpty()) return;
+            publishPending();
+        }
+    }
+
+    private static void publishPending() {
+        Map<UUID, Long> taken = new HashMap<>();
+        int written = 0;
+        try {
+            for (UUID playerId : new ArrayList<>(dirty.keySet())) {
+                Long editedAt = dirty.get(playerId);
+                if (editedAt == null) continue;
+
+                // Recorded before the edit leaves the dirty set, so apply() always sees one of them
+                Version version = new Version(editedAt, nodeId);
+                versions.merge(playerId, version, (known, local) -> local.isNewerThan(known) ? local : known);
+                // Edited again meanwhile: published with the newer time on the next poll
+                if (!dirty.remove(playerId, editedAt)) continue;
+                taken.put(playerId, editedAt);
+
+                PlayerBadgeData data = BadgeDataManager.peekPlayerData(playerId);
+                // Compaction and archiving are local to each node, so removals are not shared
+                if (data == null) continue;
+
+                String line = encode(playerId, version, data.snapshot());
+                log.write(line);
+                log.write('\n');
+                logBytes += line.length() + 1;
+                written++;
+            }
+            log.flush();
+        } catch (IOException e) {
+            LOGGER.error("Failed to append to the shared badge log, {} change(s) will be retried", taken.size(), e);
+            taken.forEach((playerId, editedAt) -> dirty.merge(playerId, editedAt, Math::max));
+        }
+        if (written > 0) {
+            LOGGER.debug("Shared {} badge record change(s)", written);
+        }
+    }
+
+    // Cluster thread
+    private static void compactIfNeeded() {
+        synchronized (publishLock) {
+            if (log == null || logBytes < compactAtBytes) return;
+            try {
+                compact();
+            } catch (IOException e) {
+                LOGGER.error("Failed to compact the shared badge log, retrying after it grows further", e);
+                compactAtBytes = logBytes + compactLimit();
+            }
+        }
+    }
+
+    // Writes the newest line per player to the next generation and switches appends to it.
+    // Readers of this node move to the new generation and replay it from the start.
+    private static void compact() throws IOException {
+        log.flush();
+        Path current = logPath(logGeneration);
+        Path next = logPath(logGeneration + 1);
+        Path tempFile = next.resolveSibling(next.getFileName() + ".tmp");
+
+        // First pass: which line is the newest for each player
+        Map<UUID, Integer> newestLine = new HashMap<>();
+        BitSet keep = new BitSet();
+        try (BufferedReader reader = Files.newBufferedReader(current, StandardCharsets.UTF_8)) {
+            String line;
+            for (int index = 0; (line = reader.readLine()) != null; index++) {
+                UUID playerId = playerOf(line);
+                if (playerId == null) continue;
+                Integer previous = newestLine.put(playerId, index);
+                if (previous != null) keep.clear(previous);
+                keep.set(index);
+            }
+        }
+
+        long before = logBytes;
+        try (BufferedReader reader = Files.newBufferedReader(current, StandardCharsets.UTF_8);
+             Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            String line;
+            for (int index = 0; (line = reader.readLine()) != null; index++) {
+                if (!keep.get(index)) continue;
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+        Files.move(tempFile, next, StandardCopyOption.ATOMIC_MOVE);
+
+        log.close();
+        log = openLog(next);
+        logGeneration++;
+        logBytes = Files.size(next);
+        // A log holding mostly distinct players would otherwise be compacted again at once
+        compactAtBytes = Math.max(compactLimit(), logBytes * 2);
+        deleteOldGenerations();
+        LOGGER.info("Compacted the shared badge log from {} to {} bytes, {} players", before, logBytes,
+                newestLine.size());
+    }
+
+    private static UUID playerOf(String line) {
+        try {
+            return UUID.fromString(JsonParser.parseString(line).getAsJsonObject().get("player").getAsString());
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Best effort: a generation still open elsewhere is deleted by a later compaction or start
+    private static void deleteOldGenerations() throws IOException {
+        for (LogFile file : listLogs()) {
+            if (!file.node().equals(nodeId) || file.generation() >= logGeneration) continue;
+            try {
+                Files.deleteIfExists(file.path());
+            } catch (IOException e) {
+                LOGGER.warn("Failed to delete old shared badge log {}", file.name(), e);
+            }
+        }
+    }
+
+    private static List<LogFile> listLogs() throws IOException {
+        List<LogFile> logs = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + LOG_SUFFIX)) {
+            for (Path path : files) {
+                LogFile file = LogFile.parse(path);
+                if (file != null) logs.add(file);
+            }
+        }
+        return logs;
+    }
+
+    private static Path logPath(long generation) {
+        return directory.resolve(nodeId + "." + generation + LOG_SUFFIX);
+    }
+
+    private static Writer openLog(Path path) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE), StandardCharsets.UTF_8));
+    }
+
+    private static long compactLimit() {
+        return BadgeConfig.get().clusterCompactMegabytes * 1024L * 1024L;
+    }
+
+    // Cluster thread. Reads complete lines appended to the newest log of every other node, at most
+    // clusterBatchSize per poll, and hands them to the server thread as one task.
+    private static void tail() throws IOException {
+        MinecraftServer target = server;
+        // The server thread has not caught up with the previous batch yet
+        if (target == null || applyPending) return;
+
+        Map<String, LogFile> newest = new HashMap<>();
+        for (LogFile file : listLogs()) {
+            if (file.node().equals(nodeId)) continue;
+            newest.merge(file.node(), file, (a, b) -> a.generation() >= b.generation() ? a : b);
+        }
+        // Positions in generations that were compacted away
+        Set<String> current = new HashSet<>();
+        for (LogFile file : newest.values()) {
+            current.add(file.name());
+        }
+        readOffsets.keySet().retainAll(current);
+
+        int budget = BadgeConfig.get().clusterBatchSize;
+        List<Batch> batches = new ArrayList<>();
+        for (LogFile file : newest.values()) {
+            if (budget <= 0) break;
+
+            String name = file.name();
+            long offset = readOffsets.getOrDefault(name, 0L);
+            List<Change> changes = new ArrayList<>();
+            long end;
+            try {
+                end = readLines(file.path(), offset, budget, changes);
+            } catch (NoSuchFileException e) {
+                // Replaced by a compaction since the listing; the next poll reads the new generation
+                continue;
+            }
+            if (end == offset) continue;
+
+            budget -= Math.max(1, changes.size());
+            readOffsets.put(name, end);
+            batches.add(new Batch(file.node(), name, end, changes));
+        }
+        if (batches.isEmpty()) return;
+
+        applyPending = true;
+        target.execute(() -> apply(target, batches));
+    }
+
+    // Returns the offset just past the last complete line read; a partly written line is left for
+    // later, and so is everything after the first maxLines lines
+    private static long readLines(Path file, long offset, int maxLines, List<Change> changes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // A log that shrank was replaced; start it over
+            if (size < offset) offset = 0;
+            if (size == offset) return offset;
+
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK);
+            long position = offset;
+            long lineEnd = offset;
+            int lines = 0;
+            channel.position(offset);
+            while (lines < maxLines && channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining() && lines < maxLines) {
+                    byte b = buffer.get();
+                    position++;
+                    if (b != '\n') {
+                        line.write(b);
+                        continue;
+                    }
+                    Change change = decode(line.toString(StandardCharsets.UTF_8));
+                    if (change != null) changes.add(change);
+                    line.reset();
+                    lineEnd = position;
+                    lines++;
+                }
+                buffer.clear();
+            }
+            return lineEnd;
+        }
+    }
+
+    // Server thread
+    private static void apply(MinecraftServer server, List<Batch> batches) {
+        try {
+            Set<UUID> updated = new LinkedHashSet<>();
+            for (Batch batch : batches) {
+                for (Change change : batch.changes()) {
+                    if (applyChange(change)) updated.add(change.playerId());
+                }
+                appliedOffsets.put(batch.logName(), batch.offset());
+                // Positions in the node's earlier generations are no longer needed
+                appliedOffsets.keySet().removeIf(name -> !name.equals(batch.logName())
+                        && name.startsWith(batch.node() + "."));
+            }
+
+            // Not saved here: the next regular save persists these along with the new offsets
+            if (!updated.isEmpty()) {
+                BadgeNetworking.broadcastBadgeDataUpdates(server, updated);
+                LOGGER.debug("Applied {} badge record change(s) from other servers", updated.size());
+            }
+        } finally {
+            applyPending = false;
+        }
+    }
+
+    private static boolean applyChange(Change change) {
+        UUID playerId = change.playerId();
+        Version known = versions.get(playerId);
+        // An unpublished local edit counts from the moment it was made
+        Long editedAt = dirty.get(playerId);
+        if (editedAt != null) {
+            Version local = new Version(editedAt, nodeId);
+            if (local.isNewerThan(known)) known = local;
+        }
+        if (!change.version().isNewerThan(known)) return false;
+
+        // The remote record is newer than any local edit still pending, which it replaces
+        dirty.remove(playerId);
+        versions.put(playerId, change.version());
+        BadgeDataManager.getPlayerData(playerId).replaceSnapshot(change.snapshot());
+        BadgeExpiry.scheduleAll(playerId, change.snapshot());
+        return true;
+    }
+
+    private static String encode(UUID playerId, Version version, PlayerBadgeData.Snapshot snapshot) {
+        JsonObject json = new JsonObject();
+        json.addProperty("node", version.node());
+        json.addProperty("time", version.time());
+        json.addProperty("player", playerId.toString());
+        json.addProperty("name", snapshot.displayName());
+
+        JsonObject badges = new JsonObject();
+        for (Identifier badgeId : snapshot.ownedBadges()) {
+            badges.addProperty(badgeId.toString(), snapshot.getExpiry(badgeId));
+        }
+        json.add("badges", badges);
+
+        JsonArray display = new JsonArray();
+        for (Identifier badgeId : snapshot.displayBadges()) {
+            display.add(badgeId != null ? badgeId.toString() : null);
+        }
+        json.add("display", display);
+        return json.toString();
+    }
+
+    private static Change decode(String line) {
+        try {
+            JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+            UUID playerId = UUID.fromString(json.get("player").getAsString());
+            Version version = new Version(json.get("time").getAsLong(), json.get("node").getAsString());
+
+            Set<Identifier> owned = new HashSet<>();
+            Map<Identifier, Long> expiries = new HashMap<>();
+            for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject("badges").entrySet()) {
+                Identifier badgeId = BadgeIds.intern(entry.getKey());
+                if (badgeId == null) continue;
+                owned.add(badgeId);
+                long expiresAt = entry.getValue().getAsLong();
+                if (expiresAt != PlayerBadgeData.PERMANENT) expiries.put(badgeId, expiresAt);
+            }
+
+            Identifier[] display = new Identifier[PlayerBadgeData.DISPLAY_SLOTS];
+            JsonArray displayJson = json.getAsJsonArray("display");
+            for (int i = 0; i < Math.min(display.length, displayJson.size()); i++) {
+                JsonElement slot = displayJson.get(i);
+                Identifier badgeId = slot.isJsonNull() ? null : BadgeIds.intern(slot.getAsString());
+                if (badgeId != null && owned.contains(badgeId)) display[i] = badgeId;
+            }
+
+            return new Change(playerId, version,
+                    PlayerBadgeData.snapshotOf(owned, display, json.get("name").getAsString(), expiries));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Skipping unreadable shared badge log line: {}", e.toString());
+            return null;
+        }
+    }
+}
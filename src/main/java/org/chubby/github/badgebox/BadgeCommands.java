@@ -1,20 +1,36 @@
 package org.chubby.github.badgebox;
 
+import com.mojang.brigadier.Command;
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
 import net.minecraft.command.CommandRegistryAccess;
+import net.minecraft.command.CommandSource;
 import net.minecraft.command.argument.EntityArgumentType;
 import net.minecraft.command.argument.IdentifierArgumentType;
 import net.minecraft.screen.SimpleNamedScreenHandlerFactory;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.MutableText;
 import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
 import net.minecraft.util.Identifier;
 
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
 public class BadgeCommands {
+    private static final int MAX_LISTED_HOLDERS = 50;
+    // Names shown per badge when one command lists the holders of several
+    private static final int MAX_LISTED_HOLDERS_PER_BADGE = 5;
 
     public static void register() {
         CommandRegistrationCallback.EVENT.register(BadgeCommands::registerCommands);
@@ -27,104 +43,451 @@ public class BadgeCommands {
         dispatcher.register(CommandManager.literal("badge")
                 .then(CommandManager.literal("give")
                         .requires(source -> source.hasPermissionLevel(2))
-                        .then(CommandManager.argument("player", EntityArgumentType.player())
-                                .then(CommandManager.argument("badge", IdentifierArgumentType.identifier())
-                                        .executes(BadgeCommands::giveBadge))))
+                        .then(CommandManager.argument("targets", EntityArgumentType.players())
+                                .then(CommandManager.literal("expires")
+                                        .then(CommandManager.argument("duration", StringArgumentType.word())
+                                                .suggests((context, builder) -> CommandSource.suggestMatching(
+                                                        List.of("1h", "1d", "7d", "30d"), builder))
+                                                .then(CommandManager.literal("category")
+                                                        .then(CommandManager.argument("category", StringArgumentType.word())
+                                                                .suggests(BadgeCommands::suggestCategories)
+                                                                .executes(timed(context -> giveTimedBadges(context, true)))))
+                                                .then(CommandManager.argument("badges", StringArgumentType.greedyString())
+                                                        .suggests(BadgeCommands::suggestBadgeIds)
+                                                        .executes(timed(context -> giveTimedBadges(context, false))))))
+                                .then(CommandManager.literal("category")
+                                        .then(CommandManager.argument("category", StringArgumentType.word())
+                                                .suggests(BadgeCommands::suggestCategories)
+                                                .executes(timed(context -> giveBadges(context, true)))))
+                                .then(CommandManager.argument("badges", StringArgumentType.greedyString())
+                                        .suggests(BadgeCommands::suggestBadgeIds)
+                                        .executes(timed(context -> giveBadges(context, false))))))
 
                 .then(CommandManager.literal("remove")
                         .requires(source -> source.hasPermissionLevel(2))
-                        .then(CommandManager.argument("player", EntityArgumentType.player())
-                                .then(CommandManager.argument("badge", IdentifierArgumentType.identifier())
-                                        .executes(BadgeCommands::removeBadge))))
+                        .then(CommandManager.argument("targets", EntityArgumentType.players())
+                                .then(CommandManager.literal("category")
+                                        .then(CommandManager.argument("category", StringArgumentType.word())
+                                                .suggests(BadgeCommands::suggestCategories)
+                                                .executes(timed(context -> removeBadges(context, true)))))
+                                .then(CommandManager.argument("badges", StringArgumentType.greedyString())
+                                        .suggests(BadgeCommands::suggestBadgeIds)
+                                        .executes(timed(context -> removeBadges(context, false))))))
 
                 .then(CommandManager.literal("list")
                         .requires(source -> source.hasPermissionLevel(2))
                         .then(CommandManager.argument("player", EntityArgumentType.player())
-                                .executes(BadgeCommands::listPlayerBadges)))
+                                .executes(timed(BadgeCommands::listPlayerBadges))))
+
+                .then(CommandManager.literal("stats")
+                        .requires(source -> source.hasPermissionLevel(2))
+                        .executes(timed(BadgeCommands::showStatistics))
+                        .then(CommandManager.literal("categories")
+                                .executes(timed(BadgeCommands::showCategoryStatistics))))
+
+                .then(CommandManager.literal("recent")
+                        .requires(source -> source.hasPermissionLevel(2))
+                        .executes(timed(context -> listRecentGrants(context, 10)))
+                        .then(CommandManager.argument("count", IntegerArgumentType.integer(1, 100))
+                                .executes(timed(context -> listRecentGrants(context,
+                                        IntegerArgumentType.getInteger(context, "count"))))))
+
+                .then(CommandManager.literal("holders")
+                        .requires(source -> source.hasPermissionLevel(2))
+                        .then(CommandManager.argument("badges", StringArgumentType.greedyString())
+                                .suggests(BadgeCommands::suggestBadgeIds)
+                                .executes(timed(BadgeCommands::listHolders))))
+
+                .then(CommandManager.literal("trigger")
+                        .requires(source -> source.hasPermissionLevel(2))
+                        .then(CommandManager.argument("targets", EntityArgumentType.players())
+                                .then(CommandManager.argument("trigger", IdentifierArgumentType.identifier())
+                                        .suggests((context, builder) -> CommandSource.suggestIdentifiers(
+                                                BadgeCriteria.getCustomTriggers(), builder))
+                                        .executes(timed(context -> fireTrigger(context, 1)))
+                                        .then(CommandManager.argument("value", IntegerArgumentType.integer(0))
+                                                .executes(timed(context -> fireTrigger(context,
+                                                        IntegerArgumentType.getInteger(context, "value"))))))))
+
+                .then(CommandManager.literal("metrics")
+                        .requires(source -> source.hasPermissionLevel(2))
+                        .executes(timed(BadgeCommands::showMetrics)))
 
                 .then(CommandManager.literal("editor")
-                        .executes(BadgeCommands::openBadgeEditor))
+                        .executes(timed(BadgeCommands::openBadgeEditor)))
 
                 .then(CommandManager.literal("display")
-                        .executes(BadgeCommands::openBadgeDisplay))
+                        .executes(timed(BadgeCommands::openBadgeDisplay)))
+
+                .then(CommandManager.literal("backfill")
+                        .requires(source -> source.hasPermissionLevel(3))
+                        .then(CommandManager.literal("advancements")
+                                .executes(timed(BadgeCommands::backfillAdvancements))))
+
+                .then(CommandManager.literal("export")
+                        .requires(source -> source.hasPermissionLevel(3))
+                        .then(CommandManager.literal("csv")
+                                .executes(timed(context -> exportBadges(context, BadgeExport.Format.CSV, false)))
+                                .then(CommandManager.literal("gzip")
+                                        .executes(timed(context -> exportBadges(context, BadgeExport.Format.CSV, true)))))
+                        .then(CommandManager.literal("jsonl")
+                                .executes(timed(context -> exportBadges(context, BadgeExport.Format.JSONL, false)))
+                                .then(CommandManager.literal("gzip")
+                                        .executes(timed(context -> exportBadges(context, BadgeExport.Format.JSONL, true))))))
+
+                .then(CommandManager.literal("backup")
+                        .requires(source -> source.hasPermissionLevel(3))
+                        .executes(timed(BadgeCommands::backupPlayerData)))
+
+                .then(CommandManager.literal("restore")
+                        .requires(source -> source.hasPermissionLevel(4))
+                        .then(CommandManager.argument("timestamp", StringArgumentType.word())
+                                .suggests((context, builder) -> CommandSource.suggestMatching(
+                                        BadgeBackups.listBackups(), builder))
+                                .executes(timed(BadgeCommands::restoreBackup))))
+
+                .then(CommandManager.literal("compact")
+                        .requires(source -> source.hasPermissionLevel(3))
+                        .executes(timed(BadgeCommands::compactPlayerData)))
 
                 .then(CommandManager.literal("reload")
                         .requires(source -> source.hasPermissionLevel(3))
-                        .executes(BadgeCommands::reloadBadges))
+                        .executes(timed(BadgeCommands::reloadBadges)))
         );
     }
 
-    private static int giveBadge(CommandContext<ServerCommandSource> context) {
+    // Account a command's server-thread time against the tick budget
+    private static Command<ServerCommandSource> timed(Command<ServerCommandSource> command) {
+        return context -> {
+            long start = BadgeTickBudget.begin();
+            try {
+                return command.run(context);
+            } finally {
+                BadgeTickBudget.end(BadgeTickBudget.Section.COMMAND, start);
+            }
+        };
+    }
+
+    private static CompletableFuture<Suggestions> suggestCategories(CommandContext<ServerCommandSource> context,
+                                                                    SuggestionsBuilder builder) {
+        return CommandSource.suggestMatching(BadgeRegistry.getCategories(), builder);
+    }
+
+    // Suggest badge ids for the last space-separated token of the badges argument
+    private static CompletableFuture<Suggestions> suggestBadgeIds(CommandContext<ServerCommandSource> context,
+                                                                  SuggestionsBuilder builder) {
+        int tokenStart = builder.getRemaining().lastIndexOf(' ') + 1;
+        SuggestionsBuilder tokenBuilder = builder.createOffset(builder.getStart() + tokenStart);
+        return CommandSource.suggestMatching(
+                BadgeRegistry.getAllBadgesList().stream().map(badge -> badge.getId().toString()), tokenBuilder);
+    }
+
+    // Resolve the badges argument, or every badge of the category argument, to badge ids.
+    // Sends an error and returns null if any badge is unknown.
+    private static List<Identifier> resolveBadges(CommandContext<ServerCommandSource> context, boolean byCategory) {
+        List<Identifier> badgeIds = new ArrayList<>();
+
+        if (byCategory) {
+            String category = StringArgumentType.getString(context, "category");
+            for (Badge badge : BadgeRegistry.getBadgesByCategory(category)) {
+                badgeIds.add(badge.getId());
+            }
+            if (badgeIds.isEmpty()) {
+                context.getSource().sendError(Text.literal("No badges in category: " + category));
+                return null;
+            }
+            return badgeIds;
+        }
+
+        for (String token : StringArgumentType.getString(context, "badges").trim().split("\\s+")) {
+            // Ids without a namespace default to this mod's namespace
+            Identifier badgeId = BadgeIds.lookup(token.indexOf(':') >= 0 ? token : Badgebox.MOD_ID + ":" + token);
+            if (badgeId == null) {
+                context.getSource().sendError(Text.literal("Badge not found: " + token));
+                return null;
+            }
+            if (!badgeIds.contains(badgeId)) {
+                badgeIds.add(badgeId);
+            }
+        }
+        return badgeIds;
+    }
+
+    private static int giveBadges(CommandContext<ServerCommandSource> context, boolean byCategory) {
         try {
-            ServerPlayerEntity player = EntityArgumentType.getPlayer(context, "player");
-            Identifier badgeId = IdentifierArgumentType.getIdentifier(context, "badge");
+            Collection<ServerPlayerEntity> targets = EntityArgumentType.getPlayers(context, "targets");
+            List<Identifier> badgeIds = resolveBadges(context, byCategory);
+            if (badgeIds == null) return 0;
 
-            if (!BadgeRegistry.badgeExists(badgeId)) {
-                context.getSource().sendError(Text.literal("Badge not found: " + badgeId));
+            // Apply every grant first, then persist and sync once for the whole batch
+            Map<ServerPlayerEntity, List<Identifier>> granted = new LinkedHashMap<>();
+            Set<ServerPlayerEntity> changed = new LinkedHashSet<>();
+            for (ServerPlayerEntity player : targets) {
+                PlayerBadgeData data = BadgeDataManager.getPlayerData(player.getUuid());
+                PlayerBadgeData.Snapshot before = data.snapshot();
+                List<Identifier> added = data.addBadges(badgeIds);
+                if (!added.isEmpty()) {
+                    granted.put(player, added);
+                }
+                // Making a timed badge permanent changes the record without adding anything
+                if (data.snapshot() != before) {
+                    changed.add(player);
+                }
+            }
+
+            commitBatch(context.getSource(), changed);
+
+            for (Map.Entry<ServerPlayerEntity, List<Identifier>> entry : granted.entrySet()) {
+                entry.getKey().sendMessage(badgeListMessage(
+                        entry.getValue().size() == 1 ? "You received a new badge: " : "You received new badges: ",
+                        entry.getValue()).formatted(Formatting.GREEN));
+            }
+
+            int grants = granted.values().stream().mapToInt(List::size).sum();
+            context.getSource().sendFeedback(() -> Text.literal("Gave " + grants + " badge(s) to " +
+                    granted.size() + " of " + targets.size() + " player(s)"), true);
+
+            return changed.size();
+        } catch (Exception e) {
+            context.getSource().sendError(Text.literal("Error giving badge: " + e.getMessage()));
+            return 0;
+        }
+    }
+
+    private static int giveTimedBadges(CommandContext<ServerCommandSource> context, boolean byCategory) {
+        try {
+            String durationText = StringArgumentType.getString(context, "duration");
+            long duration = BadgeExpiry.parseDuration(durationText);
+            if (duration <= 0) {
+                context.getSource().sendError(Text.literal("Invalid duration: " + durationText + " (use e.g. 30d, 12h, 1d12h; at most 100 years)"));
                 return 0;
             }
 
-            BadgeDataManager.getPlayerData(player.getUuid()).addBadge(badgeId);
+            Collection<ServerPlayerEntity> targets = EntityArgumentType.getPlayers(context, "targets");
+            List<Identifier> badgeIds = resolveBadges(context, byCategory);
+            if (badgeIds == null) return 0;
+
+            long expiresAt = System.currentTimeMillis() + duration;
+            Map<ServerPlayerEntity, List<Identifier>> granted = new LinkedHashMap<>();
+            Set<ServerPlayerEntity> changed = new LinkedHashSet<>();
+            for (ServerPlayerEntity player : targets) {
+                PlayerBadgeData.Snapshot before = BadgeDataManager.getPlayerData(player.getUuid()).snapshot();
+                List<Identifier> added = BadgeExpiry.grant(player.getUuid(), badgeIds, expiresAt);
+                if (!added.isEmpty()) {
+                    granted.put(player, added);
+                }
+                // Extending the expiry of a badge the player already had changes the record too
+                if (BadgeDataManager.getPlayerData(player.getUuid()).snapshot() != before) {
+                    changed.add(player);
+                }
+            }
+
+            commitBatch(context.getSource(), changed);
 
-            context.getSource().sendFeedback(() ->
-                    Text.literal("Gave badge " + badgeId + " to " + player.getName().getString()), true);
+            for (Map.Entry<ServerPlayerEntity, List<Identifier>> entry : granted.entrySet()) {
+                entry.getKey().sendMessage(badgeListMessage(
+                        entry.getValue().size() == 1 ? "You received a new badge for " + durationText + ": "
+                                : "You received new badges for " + durationText + ": ",
+                        entry.getValue()).formatted(Formatting.GREEN));
+            }
 
-            player.sendMessage(Text.literal("§aYou received a new badge: " +
-                    BadgeRegistry.getBadge(badgeId).getName()));
+            int grants = granted.values().stream().mapToInt(List::size).sum();
+            context.getSource().sendFeedback(() -> Text.literal("Gave " + grants + " badge(s) expiring in " +
+                    durationText + " to " + granted.size() + " of " + targets.size() + " player(s)"), true);
 
-            return 1;
+            return changed.size();
         } catch (Exception e) {
             context.getSource().sendError(Text.literal("Error giving badge: " + e.getMessage()));
             return 0;
         }
     }
 
-    private static int removeBadge(CommandContext<ServerCommandSource> context) {
+    private static int removeBadges(CommandContext<ServerCommandSource> context, boolean byCategory) {
         try {
-            ServerPlayerEntity player = EntityArgumentType.getPlayer(context, "player");
-            Identifier badgeId = IdentifierArgumentType.getIdentifier(context, "badge");
+            Collection<ServerPlayerEntity> targets = EntityArgumentType.getPlayers(context, "targets");
+            List<Identifier> badgeIds = resolveBadges(context, byCategory);
+            if (badgeIds == null) return 0;
 
-            BadgeDataManager.getPlayerData(player.getUuid()).removeBadge(badgeId);
+            Set<ServerPlayerEntity> affected = new LinkedHashSet<>();
+            int removals = 0;
+            for (ServerPlayerEntity player : targets) {
+                PlayerBadgeData data = BadgeDataManager.findPlayerData(player.getUuid());
+                if (data == null) continue;
+                List<Identifier> removed = data.removeBadges(badgeIds);
+                if (!removed.isEmpty()) {
+                    affected.add(player);
+                    removals += removed.size();
+                }
+            }
 
-            context.getSource().sendFeedback(() ->
-                    Text.literal("Removed badge " + badgeId + " from " + player.getName().getString()), true);
+            commitBatch(context.getSource(), affected);
 
-            return 1;
+            int total = removals;
+            context.getSource().sendFeedback(() -> Text.literal("Removed " + total + " badge(s) from " +
+                    affected.size() + " of " + targets.size() + " player(s)"), true);
+
+            return affected.size();
         } catch (Exception e) {
             context.getSource().sendError(Text.literal("Error removing badge: " + e.getMessage()));
             return 0;
         }
     }
 
+    // Persist once and send one coalesced sync for every player changed by a bulk command
+    private static void commitBatch(ServerCommandSource source, Collection<ServerPlayerEntity> affected) {
+        if (affected.isEmpty()) return;
+
+        BadgeDataManager.savePlayerData();
+
+        List<UUID> playerIds = new ArrayList<>(affected.size());
+        for (ServerPlayerEntity player : affected) {
+            playerIds.add(player.getUuid());
+        }
+        BadgeNetworking.broadcastBadgeDataUpdates(source.getServer(), playerIds);
+    }
+
+    private static MutableText badgeListMessage(String prefix, List<Identifier> badgeIds) {
+        MutableText message = Text.literal(prefix);
+        for (int i = 0; i < badgeIds.size(); i++) {
+            if (i > 0) message.append(", ");
+            Badge badge = BadgeRegistry.getBadge(badgeIds.get(i));
+            message.append(badge != null ? badge.getNameText() : Text.literal(badgeIds.get(i).toString()));
+        }
+        return message;
+    }
+
     private static int listPlayerBadges(CommandContext<ServerCommandSource> context) {
         try {
             ServerPlayerEntity player = EntityArgumentType.getPlayer(context, "player");
-            var playerData = BadgeDataManager.getPlayerData(player.getUuid());
-            var ownedBadges = playerData.getOwnedBadges();
+            String playerName = player.getName().getString();
+            PlayerBadgeData data = BadgeDataManager.findPlayerData(player.getUuid());
+            PlayerBadgeData.Snapshot snapshot = data != null ? data.snapshot() : new PlayerBadgeData(player.getUuid()).snapshot();
 
-            if (ownedBadges.isEmpty()) {
-                context.getSource().sendFeedback(() ->
-                        Text.literal(player.getName().getString() + " has no badges"), false);
-            } else {
-                context.getSource().sendFeedback(() ->
-                        Text.literal(player.getName().getString() + " has " + ownedBadges.size() + " badges:"), false);
+            return BadgeAsyncCommands.submit(context.getSource(), "list", registry -> {
+                Set<Identifier> ownedBadges = snapshot.ownedBadges();
+                List<Text> lines = new ArrayList<>(ownedBadges.size() + 1);
 
+                if (ownedBadges.isEmpty()) {
+                    lines.add(Text.literal(playerName + " has no badges"));
+                    return lines;
+                }
+
+                lines.add(Text.literal(playerName + " has " + ownedBadges.size() + " badges:"));
                 for (Identifier badgeId : ownedBadges) {
-                    var badge = BadgeRegistry.getBadge(badgeId);
+                    Badge badge = registry.getBadge(badgeId);
                     if (badge != null) {
-                        context.getSource().sendFeedback(() ->
-                                Text.literal("- " + badge.getName() + " (" + badgeId + ")"), false);
+                        long expiry = snapshot.getExpiry(badgeId);
+                        lines.add(Text.literal("- ").append(badge.getNameText()).append(" (" + badgeId +
+                                (expiry != PlayerBadgeData.PERMANENT ? ", expires " + Instant.ofEpochMilli(expiry) : "") + ")"));
                     }
                 }
+                return lines;
+            });
+        } catch (Exception e) {
+            context.getSource().sendError(Text.literal("Error listing badges: " + e.getMessage()));
+            return 0;
+        }
+    }
+
+    private static int showStatistics(CommandContext<ServerCommandSource> context) {
+        return BadgeAsyncCommands.submit(context.getSource(), "stats", registry -> {
+            Map<Identifier, Integer> holders = BadgeDataManager.getStore().countHolders();
+
+            List<Text> lines = new ArrayList<>();
+            lines.add(Text.literal(BadgeDataManager.getTotalPlayersWithBadges() + " of " +
+                    BadgeDataManager.getPlayerRecordCount() + " players own badges, " +
+                    registry.badges().size() + " badges registered"));
+
+            for (Badge badge : registry.badgesInOrder()) {
+                int count = holders.getOrDefault(badge.getId(), 0);
+                lines.add(Text.literal("- ").append(badge.getNameText()).append(": " + count));
             }
+            return lines;
+        });
+    }
 
-            return 1;
+    private static int listHolders(CommandContext<ServerCommandSource> context) {
+        List<Identifier> badgeIds = resolveBadges(context, false);
+        if (badgeIds == null) return 0;
+        int limit = badgeIds.size() == 1 ? MAX_LISTED_HOLDERS : MAX_LISTED_HOLDERS_PER_BADGE;
+
+        return BadgeAsyncCommands.submit(context.getSource(), "holders", registry -> {
+            List<Text> lines = new ArrayList<>();
+            for (Identifier badgeId : badgeIds) {
+                BadgeAsyncCommands.checkCancelled();
+                PlayerBadgeStore.Holders holders = BadgeDataManager.getStore().findHolders(badgeId, limit);
+                lines.add(Text.literal(holders.total() + " player(s) hold " + badgeId + ":"));
+                for (String name : holders.names()) {
+                    lines.add(Text.literal("- " + name));
+                }
+                if (holders.total() > holders.names().size()) {
+                    lines.add(Text.literal("... and " + (holders.total() - holders.names().size()) + " more"));
+                }
+            }
+            return lines;
+        });
+    }
+
+    private static int showCategoryStatistics(CommandContext<ServerCommandSource> context) {
+        return BadgeAsyncCommands.submit(context.getSource(), "category stats", registry -> {
+            Map<Identifier, Integer> holders = BadgeDataManager.getStore().countHolders();
+
+            List<Text> lines = new ArrayList<>();
+            lines.add(Text.literal("Badges owned per category:"));
+            for (Map.Entry<String, List<Badge>> category : registry.categories().entrySet()) {
+                int owned = 0;
+                for (Badge badge : category.getValue()) {
+                    owned += holders.getOrDefault(badge.getId(), 0);
+                }
+                BadgeCategory definition = registry.getCategoryDefinition(category.getKey());
+                String name = definition != null ? definition.displayName() : category.getKey();
+                lines.add(Text.literal("- " + name + ": " + owned + " across " + category.getValue().size() + " badge(s)"));
+            }
+            return lines;
+        });
+    }
+
+    private static int listRecentGrants(CommandContext<ServerCommandSource> context, int count) {
+        return BadgeAsyncCommands.submit(context.getSource(), "recent", registry -> {
+            List<PlayerBadgeStore.Grant> grants = BadgeDataManager.getStore().recentGrants(count);
+
+            List<Text> lines = new ArrayList<>(grants.size() + 1);
+            lines.add(Text.literal(grants.isEmpty() ? "No recent grants" : "Most recent " + grants.size() + " grant(s):"));
+            for (PlayerBadgeStore.Grant grant : grants) {
+                Badge badge = registry.getBadge(grant.badgeId());
+                String player = grant.displayName().isEmpty() ? grant.playerId().toString() : grant.displayName();
+                lines.add(Text.literal("- " + Instant.ofEpochMilli(grant.grantedAt()) + " " + player + ": ")
+                        .append(badge != null ? badge.getNameText() : Text.literal(grant.badgeId().toString())));
+            }
+            return lines;
+        });
+    }
+
+    private static int fireTrigger(CommandContext<ServerCommandSource> context, int value) {
+        try {
+            Collection<ServerPlayerEntity> targets = EntityArgumentType.getPlayers(context, "targets");
+            Identifier trigger = IdentifierArgumentType.getIdentifier(context, "trigger");
+
+            for (ServerPlayerEntity player : targets) {
+                BadgeCriteria.fireCustom(player, trigger, value);
+            }
+
+            context.getSource().sendFeedback(() -> Text.literal("Fired " + trigger + " (" + value + ") for " +
+                    targets.size() + " player(s)"), false);
+            return targets.size();
         } catch (Exception e) {
-            context.getSource().sendError(Text.literal("Error listing badges: " + e.getMessage()));
+            context.getSource().sendError(Text.literal("Error firing trigger: " + e.getMessage()));
             return 0;
         }
     }
 
+    private static int showMetrics(CommandContext<ServerCommandSource> context) {
+        for (Text line : BadgeMetrics.describe()) {
+            context.getSource().sendFeedback(() -> line, false);
+        }
+        return 1;
+    }
+
     private static int openBadgeEditor(CommandContext<ServerCommandSource> context) {
         try {
             ServerPlayerEntity player = context.getSource().getPlayerOrThrow();
@@ -158,14 +521,68 @@ public class BadgeCommands {
         }
     }
 
+    private static int backfillAdvancements(CommandContext<ServerCommandSource> context) {
+        if (!BadgeAdvancementBackfill.start(context.getSource())) return 0;
+
+        context.getSource().sendFeedback(() -> Text.literal("Advancement backfill started"), true);
+        return 1;
+    }
+
+    private static int exportBadges(CommandContext<ServerCommandSource> context, BadgeExport.Format format, boolean gzip) {
+        ServerCommandSource source = context.getSource();
+        MinecraftServer server = source.getServer();
+        Path file = BadgeExport.defaultFile(format, gzip);
+
+        CompletableFuture<BadgeExport.Result> export = BadgeExport.export(file, format, gzip,
+                progress -> server.execute(() -> source.sendFeedback(() -> Text.literal(String.format(
+                        "Export: %d/%d players, %d rows", progress.players(), progress.totalPlayers(), progress.rows())), false)));
+        if (export == null) {
+            source.sendError(Text.literal("An export or compaction is already running"));
+            return 0;
+        }
+
+        export.whenComplete((result, error) -> server.execute(() -> {
+            if (error != null) {
+                source.sendError(Text.literal("Export failed: " + error.getMessage()));
+                return;
+            }
+            source.sendFeedback(() -> Text.literal(String.format("Exported %d rows for %d players to %s (%d bytes) in %.1fs",
+                    result.rows(), result.players(), result.file().getFileName(), result.bytes(),
+                    result.nanos() / 1_000_000_000.0)), true);
+        }));
+        source.sendFeedback(() -> Text.literal("Exporting badge ownership to " + file.getFileName()), true);
+        return 1;
+    }
+
+    private static int backupPlayerData(CommandContext<ServerCommandSource> context) {
+        if (!BadgeBackups.requestBackup(context.getSource())) return 0;
+
+        context.getSource().sendFeedback(() -> Text.literal("Badge data backup started"), true);
+        return 1;
+    }
+
+    private static int restoreBackup(CommandContext<ServerCommandSource> context) {
+        String name = StringArgumentType.getString(context, "timestamp");
+        if (!BadgeBackups.requestRestore(context.getSource(), name)) return 0;
+
+        context.getSource().sendFeedback(() -> Text.literal("Restoring badge data from backup " + name), true);
+        return 1;
+    }
+
+    private static int compactPlayerData(CommandContext<ServerCommandSource> context) {
+        if (!BadgeCompaction.requestRun(context.getSource())) return 0;
+
+        context.getSource().sendFeedback(() -> Text.literal("Player data compaction started"), true);
+        return 1;
+    }
+
     private static int reloadBadges(CommandContext<ServerCommandSource> context) {
-        try {
-            BadgeDataManager.loadBadges();
-            context.getSource().sendFeedback(() -> Text.literal("Badges reloaded successfully"), true);
-            return 1;
-        } catch (Exception e) {
-            context.getSource().sendError(Text.literal("Error reloading badges: " + e.getMessage()));
+        // Parsed off the server thread; the result is reported once it is installed
+        if (!BadgeCatalogReloader.requestReload(context.getSource())) {
+            context.getSource().sendError(Text.literal("Badge reloads are not available right now"));
             return 0;
         }
+        context.getSource().sendFeedback(() -> Text.literal("Reloading badges..."), false);
+        return 1;
     }
 }
\ No newline at end of file
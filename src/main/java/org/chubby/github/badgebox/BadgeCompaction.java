@@ -0,0 +1,184 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Background compaction of player records. Every compactionIntervalMinutes, or on /badge compact,
+// a worker walks the live records compactionBatchSize at a time: records holding no badges are
+// dropped, and records of players absent for archiveAfterDays are written to BadgeArchive.
+// Candidates are picked from immutable snapshots off the server thread; each batch is then removed
+// on the server thread, skipping players who are online or whose record changed in the meantime.
+// A running export holds compaction off, so no record moves between live data and the archive
+// while it is being written out.
+public class BadgeCompaction {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeCompaction");
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private record Candidate(PlayerBadgeData data, PlayerBadgeData.Snapshot snapshot, long lastSeen, boolean stale) {
+    }
+
+    // Held by a compaction run, or by an export
+    private static final AtomicBoolean running = new AtomicBoolean();
+    private static ScheduledExecutorService executor;
+    private static MinecraftServer server;
+
+    // Call after player data is loaded
+    public static synchronized void start(MinecraftServer server) {
+        if (executor != null) return;
+
+        BadgeCompaction.server = server;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BadgeBox-Compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int interval = BadgeConfig.get().compactionIntervalMinutes;
+        if (interval > 0) {
+            executor.scheduleWithFixedDelay(() -> run(null), interval, interval, TimeUnit.MINUTES);
+        }
+    }
+
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        server = null;
+        BadgeArchive.flush();
+    }
+
+    // Queue a run now; the summary is reported to the source. Returns false if one is running.
+    public static synchronized boolean requestRun(ServerCommandSource source) {
+        if (executor == null) {
+            source.sendError(Text.literal("Compaction is not available right now"));
+            return false;
+        }
+        if (running.get()) {
+            source.sendError(Text.literal("A compaction or export is already running"));
+            return false;
+        }
+        executor.execute(() -> run(source));
+        return true;
+    }
+
+    // Keep compaction from starting until release. Returns false if a compaction or another holder
+    // is running.
+    static boolean tryHold() {
+        return running.compareAndSet(false, true);
+    }
+
+    static void release() {
+        running.set(false);
+    }
+
+    private static void run(ServerCommandSource source) {
+        MinecraftServer server = BadgeCompaction.server;
+        if (server == null || !running.compareAndSet(false, true)) return;
+
+        try {
+            compact(server, source);
+        } catch (InterruptedException e) {
+            // Shutting down; whatever was removed so far is saved with the rest on stop
+        } catch (IOException | ExecutionException e) {
+            LOGGER.error("Player data compaction failed", e);
+            if (source != null) {
+                server.execute(() -> source.sendError(Text.literal("Compaction failed: " + e.getMessage())));
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private static void compact(MinecraftServer server, ServerCommandSource source)
+            throws IOException, ExecutionException, InterruptedException {
+        long start = System.nanoTime();
+        BadgeConfig config = BadgeConfig.get();
+        long cutoff = config.archiveAfterDays > 0
+                ? System.currentTimeMillis() - config.archiveAfterDays * DAY_MILLIS
+                : Long.MIN_VALUE;
+
+        int examined = 0;
+        int[] reclaimed = new int[2]; // dropped, archived
+        List<Candidate> batch = new ArrayList<>();
+        for (PlayerBadgeData data : BadgeDataManager.playerRecords()) {
+            PlayerBadgeData.Snapshot snapshot = data.snapshot();
+            long lastSeen = data.getLastSeen();
+            if (snapshot.ownedBadges().isEmpty()) {
+                batch.add(new Candidate(data, snapshot, lastSeen, false));
+            } else if (lastSeen < cutoff) {
+                batch.add(new Candidate(data, snapshot, lastSeen, true));
+            }
+
+            // Yield to the server thread after every batch rather than holding up a tick
+            if (++examined % config.compactionBatchSize == 0) {
+                compactBatch(server, batch, reclaimed);
+                batch = new ArrayList<>();
+            }
+        }
+        compactBatch(server, batch, reclaimed);
+        BadgeArchive.flush();
+
+        int examinedRecords = examined;
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        server.execute(() -> {
+            if (reclaimed[0] + reclaimed[1] > 0) {
+                BadgeDataManager.savePlayerData();
+            }
+            String summary = String.format("Compaction examined %d records in %.1fs: reclaimed %d (%d empty dropped, %d archived), %d live, %d archived",
+                    examinedRecords, seconds, reclaimed[0] + reclaimed[1], reclaimed[0], reclaimed[1],
+                    BadgeDataManager.getPlayerRecordCount(), BadgeArchive.size());
+            LOGGER.info(summary);
+            if (source != null) {
+                source.sendFeedback(() -> Text.literal(summary), true);
+            }
+        });
+    }
+
+    private static void compactBatch(MinecraftServer server, List<Candidate> batch, int[] reclaimed)
+            throws IOException, ExecutionException, InterruptedException {
+        if (batch.isEmpty()) return;
+
+        // Archive first, so a record is never removed before its copy is on disk
+        List<PlayerBadgeData> stale = new ArrayList<>();
+        for (Candidate candidate : batch) {
+            if (candidate.stale()) stale.add(candidate.data());
+        }
+        BadgeArchive.archive(stale);
+
+        int[] removed = CompletableFuture.supplyAsync(() -> remove(server, batch), server).get();
+        reclaimed[0] += removed[0];
+        reclaimed[1] += removed[1];
+    }
+
+    // Server thread. Returns {dropped, archived}.
+    private static int[] remove(MinecraftServer server, List<Candidate> batch) {
+        int[] removed = new int[2];
+        List<UUID> superseded = new ArrayList<>();
+        for (Candidate candidate : batch) {
+            PlayerBadgeData data = candidate.data();
+            boolean dropped = server.getPlayerManager().getPlayer(data.getPlayerId()) == null
+                    && data.getLastSeen() == candidate.lastSeen()
+                    && BadgeDataManager.removeIfUnchanged(data, candidate.snapshot());
+
+            if (dropped) {
+                removed[candidate.stale() ? 1 : 0]++;
+            }
+            // Only an archived record that left live data keeps its archive entry; any other
+            // archived copy is older than the live record, or than the drop of an empty one
+            if (!(candidate.stale() && dropped)) {
+                superseded.add(data.getPlayerId());
+            }
+        }
+        BadgeArchive.forget(superseded);
+        return removed;
+    }
+}
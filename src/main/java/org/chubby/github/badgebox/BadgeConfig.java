@@ -0,0 +1,123 @@
+package org.chubby.github.badgebox;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Server-side tuning options, read from config/badgebox/config.json.
+// Missing keys keep their defaults and are written back so the file documents every option.
+public class BadgeConfig {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeConfig");
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static BadgeConfig instance = new BadgeConfig();
+
+    // Off-thread admin commands
+    public int asyncCommandThreads = 2;
+    public int asyncCommandQueueSize = 16;
+    public int asyncCommandTimeoutSeconds = 10;
+
+    // Badge event bus
+    public int eventBufferSize = 4096;
+    public int asyncEventThreads = 1;
+    public int asyncEventQueueSize = 256;
+
+    // Server-thread time budget per tick, and how often to warn when it is exceeded
+    public double tickBudgetMillis = 2.0;
+    public int slowTickWarningIntervalSeconds = 10;
+
+    // Where player records are stored: "nbt" for player_data.dat, or "sqlite" for an indexed
+    // player_data.db that is filled from player_data.dat on first start
+    public String storage = "nbt";
+
+    // Reload badges.json automatically when it changes on disk
+    public boolean watchCatalog = false;
+    public int catalogReloadDebounceMillis = 500;
+
+    // Background compaction of player records; 0 disables the scheduled run, /badge compact still works
+    public int compactionIntervalMinutes = 60;
+    public int compactionBatchSize = 2000;
+    // Move records of players absent this many days to the compressed archive; 0 keeps them live
+    public int archiveAfterDays = 0;
+
+    // Multi-server mode: servers with the same sharedDirectory and distinct nodeIds share badge
+    // changes through an append-only log per node. Leave nodeId empty to run standalone.
+    // Two servers on one machine can point at the same directory to try it.
+    public String nodeId = "";
+    public String sharedDirectory = "";
+    public int clusterPollMillis = 250;
+    // Remote changes applied per poll, so a node catching up spreads the work over many ticks
+    public int clusterBatchSize = 2000;
+    // A node rewrites its log with only the newest line per player once it grows past this size
+    public int clusterCompactMegabytes = 64;
+
+    // Player data backups under config/badgebox/backups; 0 disables the scheduled run.
+    // A full backup is taken after backupDiffsPerBase differential ones, and the newest
+    // backupRetainBases full backups are kept along with their differentials.
+    public int backupIntervalMinutes = 30;
+    public int backupDiffsPerBase = 24;
+    public int backupRetainBases = 3;
+
+    public static BadgeConfig get() {
+        return instance;
+    }
+
+    public static void load(Path configFile) {
+        BadgeConfig loaded = null;
+        boolean readFailed = false;
+
+        if (Files.exists(configFile)) {
+            try (Reader reader = Files.newBufferedReader(configFile, StandardCharsets.UTF_8)) {
+                loaded = GSON.fromJson(reader, BadgeConfig.class);
+            } catch (IOException | JsonParseException e) {
+                LOGGER.error("Failed to read {}, using defaults", configFile, e);
+                readFailed = true;
+            }
+        }
+
+        instance = loaded != null ? loaded.sanitized() : new BadgeConfig();
+
+        // Leave a broken file alone so the admin can fix it
+        if (readFailed) return;
+
+        try (Writer writer = Files.newBufferedWriter(configFile, StandardCharsets.UTF_8)) {
+            GSON.toJson(instance, writer);
+        } catch (IOException e) {
+            LOGGER.error("Failed to write {}", configFile, e);
+        }
+    }
+
+    private BadgeConfig sanitized() {
+        storage = "sqlite".equalsIgnoreCase(storage) ? "sqlite" : "nbt";
+        asyncCommandThreads = Math.max(1, asyncCommandThreads);
+        asyncCommandQueueSize = Math.max(1, asyncCommandQueueSize);
+        asyncCommandTimeoutSeconds = Math.max(1, asyncCommandTimeoutSeconds);
+        eventBufferSize = Math.max(16, eventBufferSize);
+        asyncEventThreads = Math.max(1, asyncEventThreads);
+        asyncEventQueueSize = Math.max(1, asyncEventQueueSize);
+        tickBudgetMillis = Math.max(0.0, tickBudgetMillis);
+        slowTickWarningIntervalSeconds = Math.max(0, slowTickWarningIntervalSeconds);
+        catalogReloadDebounceMillis = Math.max(50, catalogReloadDebounceMillis);
+        compactionIntervalMinutes = Math.max(0, compactionIntervalMinutes);
+        compactionBatchSize = Math.max(1, compactionBatchSize);
+        archiveAfterDays = Math.max(0, archiveAfterDays);
+        backupIntervalMinutes = Math.max(0, backupIntervalMinutes);
+        backupDiffsPerBase = Math.max(0, backupDiffsPerBase);
+        backupRetainBases = Math.max(1, backupRetainBases);
+        // The node id names a file in the shared directory
+        nodeId = nodeId == null || !nodeId.trim().matches("[A-Za-z0-9_-]*") ? "" : nodeId.trim();
+        sharedDirectory = sharedDirectory == null ? "" : sharedDirectory.trim();
+        clusterPollMillis = Math.max(20, clusterPollMillis);
+        clusterBatchSize = Math.max(1, clusterBatchSize);
+        clusterCompactMegabytes = Math.max(1, clusterCompactMegabytes);
+        return this;
+    }
+}
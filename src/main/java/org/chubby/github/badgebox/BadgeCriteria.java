@@ -0,0 +1,192 @@
+package org.chubby.github.badgebox;
+
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.advancement.AdvancementEntry;
+import net.minecraft.registry.Registries;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.stat.Stat;
+import net.minecraft.stat.StatType;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+import net.minecraft.util.Identifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+// Automatic badge awards. Criteria from the catalog are indexed by what triggers them
+// (join, a specific stat, a specific advancement, a custom trigger id), so a stat change or
+// advancement costs one hash lookup and only the criteria depending on it are evaluated.
+// Nothing is polled per tick. All entry points run on the server thread.
+public class BadgeCriteria {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeCriteria");
+
+    private record Threshold(Identifier badgeId, int min) {
+    }
+
+    private record Index(List<Identifier> onJoin,
+                         Map<Stat<?>, Threshold[]> byStat,
+                         Map<Identifier, int[]> byAdvancement,
+                         Map<Identifier, Threshold[]> byCustom) {
+        private static final Index EMPTY = new Index(List.of(), Map.of(), Map.of(), Map.of());
+    }
+
+    private static volatile Index index = Index.EMPTY;
+
+    // Players awarded something this tick; saved and synced once in flush()
+    private static final Set<UUID> pendingSync = new LinkedHashSet<>();
+
+    public static void register() {
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> onJoin(handler.getPlayer()));
+    }
+
+    // Rebuild the trigger index from the registry; called after every catalog load
+    public static void rebuild() {
+        List<Identifier> onJoin = new ArrayList<>();
+        Map<Stat<?>, List<Threshold>> byStat = new HashMap<>();
+        Map<Identifier, List<Integer>> byAdvancement = new HashMap<>();
+        Map<Identifier, List<Threshold>> byCustom = new HashMap<>();
+        int count = 0;
+
+        for (Badge badge : BadgeRegistry.getAllBadgesList()) {
+            // Unobtainable badges can still be given by hand, but are never awarded automatically
+            if (!badge.isObtainable()) continue;
+
+            for (BadgeCriterion criterion : badge.getCriteria()) {
+                switch (criterion.type()) {
+                    case JOIN -> onJoin.add(badge.getId());
+                    case STAT -> {
+                        Stat<?> stat = resolveStat(criterion.statType(), criterion.target());
+                        if (stat == null) {
+                            LOGGER.error("Badge {} uses unknown stat {} {}", badge.getId(), criterion.statType(), criterion.target());
+                            continue;
+                        }
+                        byStat.computeIfAbsent(stat, key -> new ArrayList<>()).add(new Threshold(badge.getId(), criterion.min()));
+                    }
+                    case ADVANCEMENT -> byAdvancement.computeIfAbsent(criterion.target(), key -> new ArrayList<>()).add(badge.getOrdinal());
+                    case CUSTOM -> byCustom.computeIfAbsent(criterion.target(), key -> new ArrayList<>())
+                            .add(new Threshold(badge.getId(), criterion.min()));
+                }
+                count++;
+            }
+        }
+
+        Map<Stat<?>, Threshold[]> statIndex = new HashMap<>();
+        byStat.forEach((stat, thresholds) -> statIndex.put(stat, thresholds.toArray(new Threshold[0])));
+        Map<Identifier, int[]> advancementIndex = new HashMap<>();
+        byAdvancement.forEach((id, ordinals) -> advancementIndex.put(id, ordinals.stream().mapToInt(Integer::intValue).toArray()));
+        Map<Identifier, Threshold[]> customIndex = new HashMap<>();
+        byCustom.forEach((id, thresholds) -> customIndex.put(id, thresholds.toArray(new Threshold[0])));
+
+        index = new Index(List.copyOf(onJoin), statIndex, advancementIndex, customIndex);
+        LOGGER.info("Indexed {} badge criteria: {} join, {} stats, {} advancements, {} custom triggers",
+                count, onJoin.size(), statIndex.size(), advancementIndex.size(), customIndex.size());
+    }
+
+    private static Stat<?> resolveStat(Identifier statTypeId, Identifier valueId) {
+        StatType<?> statType = Registries.STAT_TYPE.get(statTypeId);
+        return statType != null ? resolveStat(statType, valueId) : null;
+    }
+
+    private static <T> Stat<T> resolveStat(StatType<T> statType, Identifier valueId) {
+        if (!statType.getRegistry().containsId(valueId)) return null;
+        return statType.getOrCreateStat(statType.getRegistry().get(valueId));
+    }
+
+    public static Set<Identifier> getCustomTriggers() {
+        return index.byCustom().keySet();
+    }
+
+    // Advancement id to the ordinals of the badges it grants. Immutable; replaced on every rebuild.
+    public static Map<Identifier, int[]> getAdvancementIndex() {
+        return Collections.unmodifiableMap(index.byAdvancement());
+    }
+
+    // Join criteria, plus a catch-up pass over stat and advancement criteria for anything the
+    // player reached while offline or before the criterion was added to the catalog
+    public static void onJoin(ServerPlayerEntity player) {
+        long start = BadgeTickBudget.begin();
+        try {
+            Index current = index;
+            for (Identifier badgeId : current.onJoin()) {
+                award(player, badgeId);
+            }
+
+            for (Map.Entry<Stat<?>, Threshold[]> entry : current.byStat().entrySet()) {
+                int value = player.getStatHandler().getStat(entry.getKey());
+                for (Threshold threshold : entry.getValue()) {
+                    if (value >= threshold.min()) award(player, threshold.badgeId());
+                }
+            }
+
+            MinecraftServer server = player.getServer();
+            if (server == null) return;
+            for (Map.Entry<Identifier, int[]> entry : current.byAdvancement().entrySet()) {
+                AdvancementEntry advancement = server.getAdvancementLoader().get(entry.getKey());
+                if (advancement != null && player.getAdvancementTracker().getProgress(advancement).isDone()) {
+                    awardOrdinals(player, entry.getValue());
+                }
+            }
+        } finally {
+            BadgeTickBudget.end(BadgeTickBudget.Section.AWARDS, start);
+        }
+    }
+
+    // Called for every stat write, so the common case must stay a single failed lookup
+    public static void onStatChanged(ServerPlayerEntity player, Stat<?> stat, int value) {
+        Threshold[] thresholds = index.byStat().get(stat);
+        if (thresholds == null) return;
+
+        for (Threshold threshold : thresholds) {
+            if (value >= threshold.min()) award(player, threshold.badgeId());
+        }
+    }
+
+    // One hash lookup per completed advancement; the ordinals index straight into the registry
+    public static void onAdvancementDone(ServerPlayerEntity player, Identifier advancementId) {
+        int[] ordinals = index.byAdvancement().get(advancementId);
+        if (ordinals == null) return;
+
+        awardOrdinals(player, ordinals);
+    }
+
+    private static void awardOrdinals(ServerPlayerEntity player, int[] ordinals) {
+        for (int ordinal : ordinals) {
+            Badge badge = BadgeRegistry.getBadgeByOrdinal(ordinal);
+            if (badge != null) award(player, badge.getId());
+        }
+    }
+
+    // Entry point for other mods and the /badge trigger command. `value` is the trigger's
+    // current total for this player, compared against each criterion's min.
+    public static void fireCustom(ServerPlayerEntity player, Identifier trigger, int value) {
+        Threshold[] thresholds = index.byCustom().get(trigger);
+        if (thresholds == null) return;
+
+        for (Threshold threshold : thresholds) {
+            if (value >= threshold.min()) award(player, threshold.badgeId());
+        }
+    }
+
+    private static void award(ServerPlayerEntity player, Identifier badgeId) {
+        PlayerBadgeData data = BadgeDataManager.getPlayerData(player.getUuid());
+        if (data.hasBadge(badgeId)) return;
+
+        data.addBadge(badgeId);
+        pendingSync.add(player.getUuid());
+
+        Badge badge = BadgeRegistry.getBadge(badgeId);
+        player.sendMessage(Text.literal("You earned a new badge: ").formatted(Formatting.GREEN)
+                .append(badge != null ? badge.getNameText() : Text.literal(badgeId.toString())));
+    }
+
+    // Called on the server thread at the end of every tick
+    public static void flush(MinecraftServer server) {
+        if (pendingSync.isEmpty()) return;
+
+        BadgeDataManager.savePlayerData();
+        BadgeNetworking.broadcastBadgeDataUpdates(server, new ArrayList<>(pendingSync));
+        pendingSync.clear();
+    }
+}
@@ -0,0 +1,64 @@
+package org.chubby.github.badgebox;
+
+import com.google.gson.JsonObject;
+import net.minecraft.util.Identifier;
+
+import java.util.Locale;
+
+// One way to earn a badge automatically, declared in the badge's "criteria" array in badges.json:
+//   {"type": "join"}
+//   {"type": "stat", "stat_type": "minecraft:custom", "stat": "minecraft:play_time", "min": 630720000}
+//   {"type": "advancement", "advancement": "minecraft:story/mine_diamond"}
+//   {"type": "custom", "trigger": "myserver:tournament_wins", "min": 3}
+// A top-level "advancement": "<id>" on the badge is shorthand for an advancement criterion.
+// A badge is awarded as soon as any one of its criteria is met.
+public record BadgeCriterion(Type type, Identifier statType, Identifier target, int min) {
+    private static final Identifier CUSTOM_STAT_TYPE = Identifier.ofVanilla("custom");
+
+    public enum Type {
+        JOIN, STAT, ADVANCEMENT, CUSTOM
+    }
+
+    public static BadgeCriterion join() {
+        return new BadgeCriterion(Type.JOIN, null, null, 0);
+    }
+
+    public static BadgeCriterion advancement(Identifier advancementId) {
+        return new BadgeCriterion(Type.ADVANCEMENT, null, advancementId, 0);
+    }
+
+    // Throws IllegalArgumentException with a readable message if the entry is malformed
+    public static BadgeCriterion fromJson(JsonObject json) {
+        if (!json.has("type")) {
+            throw new IllegalArgumentException("criterion has no type");
+        }
+
+        String typeName = json.get("type").getAsString();
+        Type type;
+        try {
+            type = Type.valueOf(typeName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown criterion type " + typeName);
+        }
+
+        int min = json.has("min") ? json.get("min").getAsInt() : 1;
+        return switch (type) {
+            case JOIN -> join();
+            case STAT -> new BadgeCriterion(type,
+                    json.has("stat_type") ? parseId(json, "stat_type") : CUSTOM_STAT_TYPE, parseId(json, "stat"), min);
+            case ADVANCEMENT -> advancement(parseId(json, "advancement"));
+            case CUSTOM -> new BadgeCriterion(type, null, parseId(json, "trigger"), min);
+        };
+    }
+
+    private static Identifier parseId(JsonObject json, String key) {
+        if (!json.has(key)) {
+            throw new IllegalArgumentException("criterion is missing " + key);
+        }
+        Identifier id = Identifier.tryParse(json.get(key).getAsString());
+        if (id == null) {
+            throw new IllegalArgumentException("invalid " + key + ": " + json.get(key).getAsString());
+        }
+        return id;
+    }
+}
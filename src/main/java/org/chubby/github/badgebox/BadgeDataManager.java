@@ -3,15 +3,7 @@ package org.chubby.github.badgebox;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import net.fabricmc.loader.api.FabricLoader;
-import net.minecraft.item.ItemStack;
-import net.minecraft.item.Items;
-import net.minecraft.nbt.NbtCompound;
-import net.minecraft.nbt.NbtIo;
-import net.minecraft.nbt.NbtSizeTracker;
-import net.minecraft.registry.Registries;
-import net.minecraft.registry.RegistryWrapper;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.Identifier;
 import org.slf4j.Logger;
@@ -21,85 +13,245 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 public class BadgeDataManager {
     private static final Logger LOGGER = LoggerFactory.getLogger("BadgeDataManager");
     private static final Map<UUID, PlayerBadgeData> playerData = new ConcurrentHashMap<>();
-    private static final Path CONFIG_DIR = FabricLoader.getInstance().getConfigDir().resolve("badgebox");
-    private static final Path BADGES_FILE = CONFIG_DIR.resolve("badges.json");
-    private static final Path PLAYER_DATA_FILE = CONFIG_DIR.resolve("player_data.dat");
+    private static final int ABSENT_CACHE_SIZE = 10_000;
+    // UUIDs recently looked up without a record, least recently used evicted first
+    private static final Map<UUID, Boolean> absentPlayers = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+                    return size() > ABSENT_CACHE_SIZE;
+                }
+            });
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static Path configDir;
+    private static Path badgesFile;
+    private static Path categoriesFile;
+    private static Path catalogCacheFile;
+    private static Path playerDataFile;
+    private static PlayerBadgeStore store;
     private static MinecraftServer server;
+    private static volatile boolean playerDataPending;
 
     public static void init(MinecraftServer server) {
+        init(server, FabricLoader.getInstance().getConfigDir().resolve("badgebox"));
+    }
+
+    // Also used by benchmarks and tools that run without the Fabric launcher; server may be null there
+    public static void init(MinecraftServer server, Path configDirectory) {
         BadgeDataManager.server = server;
+        configDir = configDirectory;
+        badgesFile = configDir.resolve("badges.json");
+        categoriesFile = configDir.resolve("categories.json");
+        catalogCacheFile = configDir.resolve("badges.cache");
+        playerDataFile = configDir.resolve("player_data.dat");
         createConfigDirectory();
+        BadgeConfig.load(configDir.resolve("config.json"));
+        BadgeArchive.init(configDir);
+        store = BadgeConfig.get().storage.equals("sqlite")
+                ? new SqlitePlayerBadgeStore(configDir.resolve("player_data.db"), playerDataFile)
+                : new NbtPlayerBadgeStore(playerDataFile);
+    }
+
+    public static Path getConfigDirectory() {
+        return configDir;
     }
 
     private static void createConfigDirectory() {
         try {
-            Files.createDirectories(CONFIG_DIR);
+            Files.createDirectories(configDir);
         } catch (IOException e) {
             LOGGER.error("Failed to create config directory", e);
         }
     }
 
+    // Get or create a player's record. Only for real players: on join, or when granting them a
+    // badge. Anything driven by a client-supplied UUID must use findPlayerData instead.
     public static PlayerBadgeData getPlayerData(UUID playerId) {
-        return playerData.computeIfAbsent(playerId, PlayerBadgeData::new);
+        PlayerBadgeData data = playerData.get(playerId);
+        BadgeMetrics.recordPlayerDataLookup(data != null);
+        if (data != null) return data;
+
+        absentPlayers.remove(playerId);
+        // A returning player gets their archived record back. The shard is read here rather than
+        // inside computeIfAbsent, which must not block on disk.
+        PlayerBadgeData restored = BadgeArchive.contains(playerId) ? BadgeArchive.restore(playerId) : null;
+        if (restored == null) {
+            return playerData.computeIfAbsent(playerId, PlayerBadgeData::new);
+        }
+
+        PlayerBadgeData existing = playerData.putIfAbsent(playerId, restored);
+        if (existing != null) return existing;
+        markDirty(playerId);
+        // Timed grants were dropped from the wheel while the record was archived
+        BadgeExpiry.scheduleAll(playerId, restored.snapshot());
+        return restored;
     }
 
-    public static void savePlayerData() {
-        if (server == null) return;
+    // Read-only lookup that never creates or restores a record. Returns null for unknown and
+    // archived players; repeated misses are answered from a bounded negative cache.
+    public static PlayerBadgeData findPlayerData(UUID playerId) {
+        if (absentPlayers.containsKey(playerId)) {
+            BadgeMetrics.recordPlayerDataLookup(false);
+            return null;
+        }
 
-        try {
-            NbtCompound rootNbt = new NbtCompound();
-            RegistryWrapper.WrapperLookup wrapperLookup = server.getRegistryManager();
+        PlayerBadgeData data = playerData.get(playerId);
+        BadgeMetrics.recordPlayerDataLookup(data != null);
+        if (data == null) {
+            absentPlayers.put(playerId, Boolean.TRUE);
+        }
+        return data;
+    }
 
-            for (Map.Entry<UUID, PlayerBadgeData> entry : playerData.entrySet()) {
-                rootNbt.put(entry.getKey().toString(), entry.getValue().toNbt());
-            }
+    static void setPlayerDataPending(boolean pending) {
+        playerDataPending = pending;
+    }
+
+    public static int getPlayerRecordCount() {
+        return playerData.size();
+    }
+
+    public static void savePlayerData() {
+        if (store == null) return;
+        // Saving before the startup load is installed would overwrite the file with partial data
+        if (playerDataPending) {
+            LOGGER.warn("Skipping player data save while player data is still loading");
+            return;
+        }
 
-            NbtIo.writeCompressed(rootNbt, PLAYER_DATA_FILE);
+        long start = BadgeTickBudget.begin();
+        try {
+            // Taken first, so the positions never run ahead of the records being saved
+            Runnable checkpoint = BadgeCluster.prepareCheckpoint();
+            long bytes = store.save(Collections.unmodifiableMap(playerData));
+            BadgeMetrics.recordSave(System.nanoTime() - start, bytes);
+            if (checkpoint != null) store.whenCommitted(checkpoint);
             LOGGER.info("Saved player badge data for {} players", playerData.size());
         } catch (IOException e) {
             LOGGER.error("Failed to save player data", e);
+        } finally {
+            BadgeTickBudget.end(BadgeTickBudget.Section.SAVE, start);
         }
     }
 
     public static void loadPlayerData() {
-        if (!Files.exists(PLAYER_DATA_FILE)) {
-            LOGGER.info("No player data file found, starting fresh");
-            return;
+        installPlayerData(readPlayerData(ForkJoinPool.commonPool()));
+    }
+
+    // Read stored records without touching the live ones. Returns null if there is nothing to load.
+    // Badge ids are interned against the installed catalog, so install it first.
+    static Map<UUID, PlayerBadgeData> readPlayerData(ForkJoinPool pool) {
+        long start = System.nanoTime();
+        Map<UUID, PlayerBadgeData> loaded = store.load(pool);
+        if (loaded != null) {
+            BadgeMetrics.recordLoad(System.nanoTime() - start);
         }
+        return loaded;
+    }
 
-        try {
-            NbtCompound rootNbt = NbtIo.readCompressed(PLAYER_DATA_FILE, NbtSizeTracker.ofUnlimitedBytes());
-
-            for (String key : rootNbt.getKeys()) {
-                try {
-                    UUID playerId = UUID.fromString(key);
-                    PlayerBadgeData data = PlayerBadgeData.fromNbt(rootNbt.getCompound(key));
-                    playerData.put(playerId, data);
-                } catch (IllegalArgumentException e) {
-                    LOGGER.warn("Invalid UUID in player data: {}", key);
-                }
-            }
+    static void installPlayerData(Map<UUID, PlayerBadgeData> loaded) {
+        if (loaded == null) return;
+        playerData.putAll(loaded);
+        absentPlayers.clear();
+        LOGGER.info("Loaded player badge data for {} players from {} storage", playerData.size(), store.name());
+    }
 
-            LOGGER.info("Loaded player badge data for {} players", playerData.size());
-        } catch (IOException e) {
-            LOGGER.error("Failed to load player data", e);
+    public static PlayerBadgeStore getStore() {
+        return store;
+    }
+
+    // Called on every change to a record, including its removal
+    static void markDirty(UUID playerId) {
+        BadgeBackups.markDirty(playerId);
+        BadgeCluster.markDirty(playerId);
+        PlayerBadgeStore current = store;
+        if (current != null) current.markDirty(playerId);
+    }
+
+    // Called for a record overwritten with another server's copy: stored locally, not shared again
+    static void markReplicated(UUID playerId) {
+        BadgeBackups.markDirty(playerId);
+        PlayerBadgeStore current = store;
+        if (current != null) current.markDirty(playerId);
+    }
+
+    // Called when badges are newly granted, just before the matching markDirty
+    static void recordGrants(UUID playerId, Collection<Identifier> badgeIds, long grantedAt) {
+        PlayerBadgeStore current = store;
+        if (current != null) current.recordGrants(playerId, badgeIds, grantedAt);
+    }
+
+    // Flush and release the store at shutdown, after the final save
+    public static void closeStore() {
+        if (store != null) {
+            store.close();
         }
     }
 
+    // Synchronous load, used by tools and benchmarks. The server loads through BadgeStartup and
+    // runtime reloads go through BadgeCatalogReloader.
     public static void loadBadges() {
-        BadgeRegistry.clearBadges();
+        long start = System.nanoTime();
+        BadgeCatalogLoader.Result result = loadCatalog();
+        if (registerCatalog(result)) {
+            activateCatalog(result, System.nanoTime() - start);
+        }
+    }
 
-        if (!Files.exists(BADGES_FILE)) {
+    // Put a loaded catalog in the registry, so badge ids resolve and player records decoded from
+    // then on intern to its Identifiers. This only swaps the registry's immutable snapshot, so it is
+    // safe off the server thread. A failed load leaves the registry as it is and returns false.
+    static boolean registerCatalog(BadgeCatalogLoader.Result result) {
+        if (result.failed()) {
+            LOGGER.error(result.errors().get(0));
+            return false;
+        }
+        BadgeRegistry.install(result.badges(), result.categories());
+        return true;
+    }
+
+    // Finish installing a registered catalog on the server thread: reindex the criteria, which
+    // creates vanilla stats, and drop category icons built for the previous catalog
+    static void activateCatalog(BadgeCatalogLoader.Result result, long loadNanos) {
+        BadgeCriteria.rebuild();
+        BadgeEditorScreenHandler.clearCategoryIcons();
+        logCatalogErrors(result);
+        LOGGER.info("Loaded {} badges from {} in {} ms (read {} ms, build {} ms)", result.badges().size(),
+                result.fromCache() ? "the compiled cache" : "configuration", loadNanos / 1_000_000,
+                result.parseNanos() / 1_000_000, result.buildNanos() / 1_000_000);
+    }
+
+    // Parse the catalog without touching the registry. Safe to call off the server thread.
+    public static BadgeCatalogLoader.Result loadCatalog() {
+        if (!Files.exists(badgesFile)) {
             createDefaultBadgesConfig();
         }
+        return BadgeCatalogCache.load(badgesFile, categoriesFile, catalogCacheFile);
+    }
+
+    static void logCatalogErrors(BadgeCatalogLoader.Result result) {
+        for (String error : result.errors()) {
+            LOGGER.error(error);
+        }
+    }
+
+    public static Path getBadgesFile() {
+        return badgesFile;
+    }
+
+    public static Path getCategoriesFile() {
+        return categoriesFile;
+    }
 
-        loadBadgesFromConfig();
+    public static Path getCatalogCacheFile() {
+        return catalogCacheFile;
     }
 
     public static void saveBadges() {
@@ -148,7 +300,7 @@ public class BadgeDataManager {
 
             config.add("badges", badges);
 
-            try (FileWriter writer = new FileWriter(BADGES_FILE.toFile())) {
+            try (FileWriter writer = new FileWriter(badgesFile.toFile())) {
                 GSON.toJson(config, writer);
             }
 
@@ -176,90 +328,76 @@ public class BadgeDataManager {
         return badge;
     }
 
-    private static void loadBadgesFromConfig() {
-        try (FileReader reader = new FileReader(BADGES_FILE.toFile())) {
-            JsonObject config = JsonParser.parseReader(reader).getAsJsonObject();
-            JsonObject badges = config.getAsJsonObject("badges");
-
-            if (server == null) {
-                LOGGER.warn("Server is null, cannot load badges");
-                return;
-            }
-
-            RegistryWrapper.WrapperLookup wrapperLookup = server.getRegistryManager();
-
-            for (Map.Entry<String, com.google.gson.JsonElement> entry : badges.entrySet()) {
-                try {
-                    String badgeId = entry.getKey();
-                    JsonObject badgeData = entry.getValue().getAsJsonObject();
-
-                    Badge badge = createBadgeFromJson(badgeId, badgeData, wrapperLookup);
-                    BadgeRegistry.registerBadge(badge);
-                } catch (Exception e) {
-                    LOGGER.error("Failed to load badge: {}", entry.getKey(), e);
-                }
-            }
-
-            LOGGER.info("Loaded {} badges from configuration", badges.size());
-        } catch (IOException e) {
-            LOGGER.error("Failed to load badges configuration", e);
-        }
+    public static Collection<PlayerBadgeData> getAllPlayerData() {
+        return new ArrayList<>(playerData.values());
     }
 
-    private static Badge createBadgeFromJson(String badgeId, JsonObject data,
-                                             RegistryWrapper.WrapperLookup wrapperLookup) {
-        Identifier id = Identifier.of("badgebox", badgeId);
-        String name = data.get("name").getAsString();
-        String category = data.get("category").getAsString();
-        boolean obtainable = data.has("obtainable") ? data.get("obtainable").getAsBoolean() : true;
-
-        // Load lore
-        List<String> lore = new ArrayList<>();
-        if (data.has("lore")) {
-            JsonObject loreObj = data.getAsJsonObject("lore");
-            int i = 0;
-            while (loreObj.has(String.valueOf(i))) {
-                lore.add(loreObj.get(String.valueOf(i)).getAsString());
-                i++;
-            }
+    // Point-in-time view of every player's badges. Safe to call off the server thread:
+    // the map is concurrent and each record's snapshot is immutable.
+    public static Map<UUID, PlayerBadgeData.Snapshot> snapshotPlayerData() {
+        Map<UUID, PlayerBadgeData.Snapshot> snapshots = new HashMap<>(playerData.size());
+        for (Map.Entry<UUID, PlayerBadgeData> entry : playerData.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
         }
+        return snapshots;
+    }
 
-        // Create display item
-        ItemStack displayItem = createItemFromString(data.get("display_item").getAsString());
-        ItemStack silhouetteItem = createItemFromString(data.get("silhouette_item").getAsString());
+    // Live view of every record for incremental scans; iteration is weakly consistent
+    static Collection<PlayerBadgeData> playerRecords() {
+        return Collections.unmodifiableCollection(playerData.values());
+    }
 
-        return new Badge(id, name, lore, category, displayItem, silhouetteItem, obtainable);
+    // Drop a record only if it still holds the given snapshot. Server thread only, for compaction.
+    static boolean removeIfUnchanged(PlayerBadgeData data, PlayerBadgeData.Snapshot expected) {
+        if (data.snapshot() != expected || !playerData.remove(data.getPlayerId(), data)) return false;
+        markDirty(data.getPlayerId());
+        return true;
     }
 
-    private static ItemStack createItemFromString(String itemString) {
-        try {
-            Identifier itemId = Identifier.of(itemString);
-            return new ItemStack(Registries.ITEM.get(itemId));
-        } catch (Exception e) {
-            LOGGER.warn("Invalid item identifier: {}, using stone as fallback", itemString);
-            return new ItemStack(Items.STONE);
-        }
+    // The live record, if any, without consulting the archive or the negative cache
+    static PlayerBadgeData peekPlayerData(UUID playerId) {
+        return playerData.get(playerId);
     }
 
-    public static Collection<PlayerBadgeData> getAllPlayerData() {
-        return new ArrayList<>(playerData.values());
+    // Swap in a complete set of records, for restoring a backup. Server thread only.
+    static void replacePlayerData(Map<UUID, PlayerBadgeData> records) {
+        for (UUID playerId : playerData.keySet()) {
+            markDirty(playerId);
+        }
+        for (UUID playerId : records.keySet()) {
+            markDirty(playerId);
+        }
+        playerData.clear();
+        playerData.putAll(records);
+        absentPlayers.clear();
     }
 
     public static void removePlayerData(UUID playerId) {
         playerData.remove(playerId);
     }
 
+    static void clearPlayerData() {
+        playerData.clear();
+    }
+
+    // Stops with a CancellationException if the calling thread is interrupted
     public static int getTotalPlayersWithBadges() {
-        return (int) playerData.values().stream()
-                .filter(data -> !data.getOwnedBadges().isEmpty())
-                .count();
+        int count = 0;
+        for (PlayerBadgeData data : playerData.values()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Badge count interrupted");
+            }
+            if (!data.snapshot().ownedBadges().isEmpty()) count++;
+        }
+        return count;
     }
 
     public static Map<Identifier, Integer> getBadgeStatistics() {
         Map<Identifier, Integer> stats = new HashMap<>();
 
         for (PlayerBadgeData data : playerData.values()) {
-            for (Identifier badgeId : data.getOwnedBadges()) {
+            // Each snapshot is immutable, so this is safe against concurrent grants
+            for (Identifier badgeId : data.snapshot().ownedBadges()) {
                 stats.put(badgeId, stats.getOrDefault(badgeId, 0) + 1);
             }
         }
@@ -11,11 +11,31 @@ import net.minecraft.item.Items;
 import net.minecraft.screen.GenericContainerScreenHandler;
 import net.minecraft.screen.ScreenHandlerType;
 import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
 import net.minecraft.util.Identifier;
 import org.chubby.github.badgebox.client.BadgeClientNetworking;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 public class BadgeDisplayScreenHandler extends GenericContainerScreenHandler {
+    // Static text shared by every render
+    private static final Text EMPTY_SLOT_NAME = Text.literal("Empty Display Slot").formatted(Formatting.GRAY);
+    private static final LoreComponent EMPTY_SLOT_LORE = new LoreComponent(List.of(
+            Text.literal("Use the Badge Editor to").formatted(Formatting.GRAY),
+            Text.literal("customize your display").formatted(Formatting.GRAY)
+    ));
+    private static final Text OWN_DISPLAY_NAME = Text.literal("Your Badge Display").formatted(Formatting.GOLD);
+    private static final Text OPEN_EDITOR_HINT = Text.literal("Press ").formatted(Formatting.GRAY)
+            .append(Text.literal("B").formatted(Formatting.YELLOW))
+            .append(Text.literal(" to open Badge Editor").formatted(Formatting.GRAY));
+    private static final Text VIEWING_OTHER_HINT = Text.literal("Viewing another player's badges").formatted(Formatting.GRAY);
+    private static final Text REFRESH_NAME = Text.literal("Refresh Display").formatted(Formatting.GREEN);
+    private static final LoreComponent REFRESH_LORE = new LoreComponent(List.of(
+            Text.literal("Click to refresh badge data").formatted(Formatting.GRAY),
+            Text.literal("from the server").formatted(Formatting.GRAY)
+    ));
+
     private final PlayerEntity player;
     private PlayerBadgeData displayData;
     private final boolean isOwnDisplay;
@@ -49,6 +69,8 @@ public class BadgeDisplayScreenHandler extends GenericContainerScreenHandler {
         }
 
         List<Identifier> displayBadges = displayData.getDisplayBadges();
+        Text ownerLine = isOwnDisplay ? null : Text.literal("This badge belongs to ").formatted(Formatting.GRAY)
+                .append(Text.literal(getDisplayName()).formatted(Formatting.WHITE));
 
         // Display case in center area (slots 10-17)
         for (int i = 0; i < Math.min(8, displayBadges.size()); i++) {
@@ -58,19 +80,21 @@ public class BadgeDisplayScreenHandler extends GenericContainerScreenHandler {
             if (badgeId != null) {
                 Badge badge = BadgeRegistry.getBadge(badgeId);
                 if (badge != null) {
-                    ItemStack displayItem = badge.getDisplayItem();
-                    displayItem.set(DataComponentTypes.ITEM_NAME, Text.literal("§e" + badge.getName()));
+                    ItemStack displayItem = badge.copyDisplayItem();
+                    displayItem.set(DataComponentTypes.ITEM_NAME, badge.getDisplayNameText());
 
                     // Add lore
-                    List<Text> lore = badge.getLore().stream()
-                            .map(Text::literal)
-                            .collect(java.util.stream.Collectors.toList());
+                    List<Text> lore = new ArrayList<>(badge.getLoreText().size() + 4);
+                    if (badge.getDescriptionText() != null) {
+                        lore.add(badge.getDescriptionText());
+                    }
+                    lore.addAll(badge.getLoreText());
 
                     // Add additional context
-                    lore.add(Text.literal(""));
-                    lore.add(Text.literal("§7Category: §f" + badge.getCategory().replace("_", " ")));
-                    if (!isOwnDisplay) {
-                        lore.add(Text.literal("§7This badge belongs to §f" + getDisplayName()));
+                    lore.add(Text.empty());
+                    lore.add(badge.getCategoryText());
+                    if (ownerLine != null) {
+                        lore.add(ownerLine);
                     }
 
                     displayItem.set(DataComponentTypes.LORE, new LoreComponent(lore));
@@ -79,13 +103,10 @@ public class BadgeDisplayScreenHandler extends GenericContainerScreenHandler {
             } else {
                 // Empty display slot
                 ItemStack emptySlot = new ItemStack(Items.BLACK_STAINED_GLASS_PANE);
-                emptySlot.set(DataComponentTypes.ITEM_NAME, Text.literal("§7Empty Display Slot"));
+                emptySlot.set(DataComponentTypes.ITEM_NAME, EMPTY_SLOT_NAME);
 
                 if (isOwnDisplay) {
-                    emptySlot.set(DataComponentTypes.LORE, new LoreComponent(List.of(
-                            Text.literal("§7Use the Badge Editor to"),
-                            Text.literal("§7customize your display")
-                    )));
+                    emptySlot.set(DataComponentTypes.LORE, EMPTY_SLOT_LORE);
                 }
 
                 inventory.setStack(slot, emptySlot);
@@ -94,7 +115,7 @@ public class BadgeDisplayScreenHandler extends GenericContainerScreenHandler {
 
         // Add decorative border
         ItemStack border = new ItemStack(Items.GRAY_STAINED_GLASS_PANE);
-        border.set(DataComponentTypes.ITEM_NAME, Text.literal(""));
+        border.set(DataComponentTypes.ITEM_NAME, Text.empty());
 
         // Top and bottom borders
         for (int i = 0; i < 9; i++) {
@@ -120,19 +141,19 @@ public class BadgeDisplayScreenHandler extends GenericContainerScreenHandler {
         String displayName = getDisplayName();
 
         if (isOwnDisplay) {
-            infoItem.set(DataComponentTypes.ITEM_NAME, Text.literal("§6Your Badge Display"));
+            infoItem.set(DataComponentTypes.ITEM_NAME, OWN_DISPLAY_NAME);
             infoItem.set(DataComponentTypes.LORE, new LoreComponent(List.of(
-                    Text.literal("§7Badges Owned: §f" + displayData.getOwnedBadges().size()),
-                    Text.literal("§7Badges Displayed: §f" + getDisplayedBadgeCount()),
-                    Text.literal(""),
-                    Text.literal("§7Press §eB §7to open Badge Editor")
+                    countLine("Badges Owned: ", displayData.getOwnedBadgeCount()),
+                    countLine("Badges Displayed: ", getDisplayedBadgeCount()),
+                    Text.empty(),
+                    OPEN_EDITOR_HINT
             )));
         } else {
-            infoItem.set(DataComponentTypes.ITEM_NAME, Text.literal("§6" + displayName + "'s Badge Display"));
+            infoItem.set(DataComponentTypes.ITEM_NAME, Text.literal(displayName + "'s Badge Display").formatted(Formatting.GOLD));
             infoItem.set(DataComponentTypes.LORE, new LoreComponent(List.of(
-                    Text.literal("§7Badges Displayed: §f" + getDisplayedBadgeCount()),
-                    Text.literal(""),
-                    Text.literal("§7Viewing another player's badges")
+                    countLine("Badges Displayed: ", getDisplayedBadgeCount()),
+                    Text.empty(),
+                    VIEWING_OTHER_HINT
             )));
         }
 
@@ -141,28 +162,37 @@ public class BadgeDisplayScreenHandler extends GenericContainerScreenHandler {
         // Add refresh button for non-own displays
         if (!isOwnDisplay) {
             ItemStack refreshItem = new ItemStack(Items.COMPASS);
-            refreshItem.set(DataComponentTypes.ITEM_NAME, Text.literal("§aRefresh Display"));
-            refreshItem.set(DataComponentTypes.LORE, new LoreComponent(List.of(
-                    Text.literal("§7Click to refresh badge data"),
-                    Text.literal("§7from the server")
-            )));
+            refreshItem.set(DataComponentTypes.ITEM_NAME, REFRESH_NAME);
+            refreshItem.set(DataComponentTypes.LORE, REFRESH_LORE);
             inventory.setStack(8, refreshItem);
         }
     }
 
+    private static Text countLine(String label, int count) {
+        return Text.literal(label).formatted(Formatting.GRAY)
+                .append(Text.literal(String.valueOf(count)).formatted(Formatting.WHITE));
+    }
+
     private String getDisplayName() {
         String displayName = displayData.getDisplayName();
         return displayName.isEmpty() ? "Player" : displayName;
     }
 
     private int getDisplayedBadgeCount() {
-        return (int) displayData.getDisplayBadges().stream()
-                .filter(badgeId -> badgeId != null)
-                .count();
+        return displayData.getDisplayedBadgeCount();
     }
 
     @Override
     public void onSlotClick(int slotIndex, int button, net.minecraft.screen.slot.SlotActionType actionType, PlayerEntity player) {
+        long start = BadgeTickBudget.begin();
+        try {
+            handleSlotClick(slotIndex, button, actionType, player);
+        } finally {
+            BadgeTickBudget.end(BadgeTickBudget.Section.SCREEN_CLICK, start);
+        }
+    }
+
+    private void handleSlotClick(int slotIndex, int button, net.minecraft.screen.slot.SlotActionType actionType, PlayerEntity player) {
         // Handle refresh button click
         if (slotIndex == 8 && !isOwnDisplay) {
             if (player.getWorld().isClient) {
@@ -199,6 +229,14 @@ public class BadgeDisplayScreenHandler extends GenericContainerScreenHandler {
         }
     }
 
+    // Whether a catalog reload changing these badges alters what this screen shows
+    boolean isAffectedBy(Set<Identifier> changedBadges) {
+        for (Identifier badgeId : displayData.getDisplayBadges()) {
+            if (badgeId != null && changedBadges.contains(badgeId)) return true;
+        }
+        return false;
+    }
+
     // Method to refresh display
     public void refreshDisplay() {
         setupDisplay();
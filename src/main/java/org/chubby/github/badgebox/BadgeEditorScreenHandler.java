@@ -2,20 +2,25 @@ package org.chubby.github.badgebox;
 
 import net.minecraft.component.DataComponentTypes;
 import net.minecraft.component.type.LoreComponent;
+import net.minecraft.component.type.NbtComponent;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.entity.player.PlayerInventory;
 import net.minecraft.inventory.Inventory;
 import net.minecraft.inventory.SimpleInventory;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.Items;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.registry.Registries;
 import net.minecraft.screen.GenericContainerScreenHandler;
 import net.minecraft.screen.ScreenHandlerType;
 import net.minecraft.screen.slot.Slot;
 import net.minecraft.screen.slot.SlotActionType;
 import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
 import net.minecraft.util.Identifier;
 import org.chubby.github.badgebox.client.BadgeClientNetworking;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BadgeEditorScreenHandler extends GenericContainerScreenHandler {
     private final PlayerEntity player;
@@ -33,6 +38,29 @@ public class BadgeEditorScreenHandler extends GenericContainerScreenHandler {
     private static final int DISPLAY_CASE_END = 53;
     private static final int NAV_PREV = 45;
     private static final int NAV_NEXT = 53;
+    private static final String BADGE_ID_KEY = "badgebox:badge";
+
+    // Static text shared by every render
+    private static final Text OWNED_LINE = Text.literal("Owned").formatted(Formatting.GREEN);
+    private static final Text IN_DISPLAY_CASE_LINE = Text.literal("Currently in Display Case").formatted(Formatting.YELLOW);
+    private static final Text ADD_TO_DISPLAY_CASE_LINE = Text.literal("Click to add to Display Case").formatted(Formatting.GRAY);
+    private static final Text NOT_OWNED_LINE = Text.literal("Not Owned").formatted(Formatting.RED);
+    private static final Text CANNOT_DISPLAY_LINE = Text.literal("Cannot be displayed").formatted(Formatting.GRAY);
+    private static final Text EMPTY_SLOT_NAME = Text.literal("Empty Slot").formatted(Formatting.GRAY);
+    private static final Text EMPTY_DISPLAY_SLOT_NAME = Text.literal("Empty Display Slot").formatted(Formatting.GRAY);
+    private static final LoreComponent EMPTY_DISPLAY_SLOT_LORE = new LoreComponent(List.of(
+            Text.literal("Drag a badge here to display it").formatted(Formatting.GRAY)
+    ));
+    private static final LoreComponent IN_DISPLAY_CASE_LORE = new LoreComponent(List.of(
+            Text.literal("In Display Case").formatted(Formatting.GRAY),
+            Text.literal("Click to remove").formatted(Formatting.GRAY)
+    ));
+    private static final Text PREVIOUS_PAGE_NAME = Text.literal("Previous Page").formatted(Formatting.GREEN);
+    private static final Text NEXT_PAGE_NAME = Text.literal("Next Page").formatted(Formatting.GREEN);
+
+    // Category selector icons by category id, built once and copied per render. BadgeRegistry
+    // drops the icons of categories whose categories.json definition changes.
+    private static final Map<String, ItemStack> CATEGORY_ICONS = new ConcurrentHashMap<>();
 
     public BadgeEditorScreenHandler(int syncId, PlayerInventory playerInventory, PlayerEntity player) {
         super(ScreenHandlerType.GENERIC_9X6, syncId, playerInventory, new SimpleInventory(54), 6);
@@ -106,24 +134,31 @@ public class BadgeEditorScreenHandler extends GenericContainerScreenHandler {
         return badgeId != null && playerData.hasBadge(badgeId);
     }
 
-    private Identifier getBadgeIdFromStack(ItemStack stack) {
-        // Extract badge ID from the item stack's custom data
-        if (stack.get(DataComponentTypes.CUSTOM_NAME) != null) {
-            String name = stack.getName().getString();
-            // Remove formatting codes
-            String cleanName = name.replaceAll("§[0-9a-fk-or]", "");
+    // Badge stacks carry their badge id in custom data; names are not unique across categories
+    static void tagBadgeId(ItemStack stack, Identifier badgeId) {
+        NbtCompound nbt = new NbtCompound();
+        nbt.putString(BADGE_ID_KEY, badgeId.toString());
+        stack.set(DataComponentTypes.CUSTOM_DATA, NbtComponent.of(nbt));
+    }
 
-            for (Badge badge : BadgeRegistry.getAllBadges()) {
-                if (badge.getName().equals(cleanName)) {
-                    return badge.getId();
-                }
-            }
-        }
-        return null;
+    static Identifier getBadgeIdFromStack(ItemStack stack) {
+        NbtComponent data = stack.get(DataComponentTypes.CUSTOM_DATA);
+        if (data == null || !data.contains(BADGE_ID_KEY)) return null;
+        Badge badge = BadgeRegistry.snapshot().getBadgeByIdString(data.copyNbt().getString(BADGE_ID_KEY));
+        return badge != null ? badge.getId() : null;
     }
 
     @Override
     public void onSlotClick(int slotIndex, int button, SlotActionType actionType, PlayerEntity player) {
+        long start = BadgeTickBudget.begin();
+        try {
+            handleSlotClick(slotIndex, button, actionType, player);
+        } finally {
+            BadgeTickBudget.end(BadgeTickBudget.Section.SCREEN_CLICK, start);
+        }
+    }
+
+    private void handleSlotClick(int slotIndex, int button, SlotActionType actionType, PlayerEntity player) {
         // Handle category selection
         if (slotIndex >= CATEGORY_START && slotIndex <= CATEGORY_END) {
             handleCategorySelection(slotIndex);
@@ -173,6 +208,24 @@ public class BadgeEditorScreenHandler extends GenericContainerScreenHandler {
         super.onSlotClick(slotIndex, button, actionType, player);
     }
 
+    // Whether a catalog reload changing these badges alters what this screen shows
+    boolean isAffectedBy(Set<Identifier> changedBadges, Set<String> changedCategories) {
+        if ("all".equals(currentCategory) || changedCategories.contains(currentCategory)) return true;
+        for (Identifier badgeId : playerData.getDisplayBadges()) {
+            if (badgeId != null && changedBadges.contains(badgeId)) return true;
+        }
+        return false;
+    }
+
+    void refreshAfterCatalogChange() {
+        // The category being viewed may have been removed
+        if (!"all".equals(currentCategory) && !BadgeRegistry.getCategories().contains(currentCategory)) {
+            currentCategory = "all";
+            currentPage = 0;
+        }
+        setupGui();
+    }
+
     private void handleCategorySelection(int slotIndex) {
         List<String> categories = new ArrayList<>(BadgeRegistry.getCategories());
         categories.add(0, "all");
@@ -225,43 +278,80 @@ public class BadgeEditorScreenHandler extends GenericContainerScreenHandler {
     }
 
     private ItemStack createCategoryItem(String category) {
+        return CATEGORY_ICONS.computeIfAbsent(category, key -> {
+            BadgeCategory definition = BadgeRegistry.getCategoryDefinition(category);
+            return definition != null ? buildCategoryIcon(definition) : buildCategoryIcon(category);
+        }).copy();
+    }
+
+    static void invalidateCategoryIcons(Collection<String> categories) {
+        CATEGORY_ICONS.keySet().removeAll(categories);
+    }
+
+    static void clearCategoryIcons() {
+        CATEGORY_ICONS.clear();
+    }
+
+    private static ItemStack buildCategoryIcon(BadgeCategory definition) {
+        ItemStack item = new ItemStack(definition.icon() != null ? Registries.ITEM.get(definition.icon()) : Items.PAPER);
+        item.set(DataComponentTypes.ITEM_NAME, Text.literal(definition.displayName()).formatted(Formatting.AQUA));
+
+        List<Text> lore = new ArrayList<>(2);
+        if (!definition.description().isEmpty()) {
+            lore.add(Text.literal(definition.description()).formatted(Formatting.GRAY));
+        }
+        lore.add(Text.literal("Click to view " + definition.displayName().toLowerCase()).formatted(Formatting.GRAY));
+        item.set(DataComponentTypes.LORE, new LoreComponent(lore));
+
+        return item;
+    }
+
+    private static ItemStack buildCategoryIcon(String category) {
         ItemStack item;
         String displayName;
+        Formatting color;
 
         switch (category) {
             case "all" -> {
                 item = new ItemStack(Items.COMPASS);
-                displayName = "§eAll Badges";
+                displayName = "All Badges";
+                color = Formatting.YELLOW;
             }
             case "gym" -> {
                 item = new ItemStack(Items.DIAMOND);
-                displayName = "§bGym Badges";
+                displayName = "Gym Badges";
+                color = Formatting.AQUA;
             }
             case "elite_four" -> {
                 item = new ItemStack(Items.EMERALD);
-                displayName = "§dElite Four";
+                displayName = "Elite Four";
+                color = Formatting.LIGHT_PURPLE;
             }
             case "champion" -> {
                 item = new ItemStack(Items.GOLD_INGOT);
-                displayName = "§6Champion";
+                displayName = "Champion";
+                color = Formatting.GOLD;
             }
             case "special" -> {
                 item = new ItemStack(Items.NETHER_STAR);
-                displayName = "§5Special";
+                displayName = "Special";
+                color = Formatting.DARK_PURPLE;
             }
             case "event" -> {
                 item = new ItemStack(Items.FIREWORK_ROCKET);
-                displayName = "§aEvent";
+                displayName = "Event";
+                color = Formatting.GREEN;
             }
             default -> {
                 item = new ItemStack(Items.PAPER);
-                displayName = "§7" + category.substring(0, 1).toUpperCase() + category.substring(1).replace("_", " ");
+                displayName = category.substring(0, 1).toUpperCase() + category.substring(1).replace("_", " ");
+                color = Formatting.GRAY;
             }
         }
 
-        item.set(DataComponentTypes.ITEM_NAME, Text.literal(displayName));
+        item.set(DataComponentTypes.ITEM_NAME, Text.literal(displayName).formatted(color));
         item.set(DataComponentTypes.LORE, new LoreComponent(List.of(
-                Text.literal("§7Click to view " + displayName.toLowerCase().replaceAll("§[0-9a-fk-or]", ""))
+                Text.literal("Click to view " + displayName.toLowerCase()).formatted(Formatting.GRAY)
         )));
 
         return item;
@@ -289,7 +379,7 @@ public class BadgeEditorScreenHandler extends GenericContainerScreenHandler {
 
     private List<Badge> getBadgesForCurrentCategory() {
         if ("all".equals(currentCategory)) {
-            return new ArrayList<>(BadgeRegistry.getAllBadges());
+            return BadgeRegistry.getAllBadgesList();
         } else {
             return BadgeRegistry.getBadgesByCategory(currentCategory);
         }
@@ -300,33 +390,36 @@ public class BadgeEditorScreenHandler extends GenericContainerScreenHandler {
         ItemStack item;
 
         if (owned) {
-            item = badge.getDisplayItem().copy();
+            item = badge.copyDisplayItem();
         } else {
             // Create silhouette item - use the same item but make it darker/grayed out
-            item = badge.getDisplayItem().copy();
-            // You might want to create a getSilhouetteItem() method in Badge class
+            item = badge.copyDisplayItem();
+            // You might want to use copySilhouetteItem() here
             // For now, we'll just use a different naming convention
         }
 
         // Set custom name
-        String nameColor = owned ? "§e" : "§8";
-        item.set(DataComponentTypes.ITEM_NAME, Text.literal(nameColor + badge.getName()));
+        item.set(DataComponentTypes.ITEM_NAME, owned ? badge.getDisplayNameText() : badge.getLockedNameText());
+        tagBadgeId(item, badge.getId());
 
         // Add custom lore
-        List<Text> loreList = new ArrayList<>();
-        badge.getLore().forEach(line -> loreList.add(Text.literal("§7" + line)));
+        List<Text> loreList = new ArrayList<>(badge.getEditorLoreText().size() + 4);
+        if (badge.getDescriptionText() != null) {
+            loreList.add(badge.getDescriptionText());
+        }
+        loreList.addAll(badge.getEditorLoreText());
 
-        loreList.add(Text.literal(""));
+        loreList.add(Text.empty());
         if (owned) {
-            loreList.add(Text.literal("§aOwned"));
+            loreList.add(OWNED_LINE);
             if (isInDisplayCase(badge.getId())) {
-                loreList.add(Text.literal("§eCurrently in Display Case"));
+                loreList.add(IN_DISPLAY_CASE_LINE);
             } else {
-                loreList.add(Text.literal("§7Click to add to Display Case"));
+                loreList.add(ADD_TO_DISPLAY_CASE_LINE);
             }
         } else {
-            loreList.add(Text.literal("§cNot Owned"));
-            loreList.add(Text.literal("§7Cannot be displayed"));
+            loreList.add(NOT_OWNED_LINE);
+            loreList.add(CANNOT_DISPLAY_LINE);
         }
 
         item.set(DataComponentTypes.LORE, new LoreComponent(loreList));
@@ -334,12 +427,12 @@ public class BadgeEditorScreenHandler extends GenericContainerScreenHandler {
     }
 
     private boolean isInDisplayCase(Identifier badgeId) {
-        return playerData.getDisplayBadges().contains(badgeId);
+        return playerData.isDisplayed(badgeId);
     }
 
     private ItemStack createEmptySlotItem() {
         ItemStack item = new ItemStack(Items.LIGHT_GRAY_STAINED_GLASS_PANE);
-        item.set(DataComponentTypes.ITEM_NAME, Text.literal("§7Empty Slot"));
+        item.set(DataComponentTypes.ITEM_NAME, EMPTY_SLOT_NAME);
         return item;
     }
 
@@ -351,24 +444,24 @@ public class BadgeEditorScreenHandler extends GenericContainerScreenHandler {
         // Previous page
         if (currentPage > 0) {
             ItemStack prevItem = new ItemStack(Items.ARROW);
-            prevItem.set(DataComponentTypes.ITEM_NAME, Text.literal("§aPrevious Page"));
-            prevItem.set(DataComponentTypes.LORE, new LoreComponent(List.of(
-                    Text.literal("§7Page " + (currentPage + 1) + " of " + totalPages)
-            )));
+            prevItem.set(DataComponentTypes.ITEM_NAME, PREVIOUS_PAGE_NAME);
+            prevItem.set(DataComponentTypes.LORE, new LoreComponent(List.of(pageLine(currentPage + 1, totalPages))));
             inventory.setStack(NAV_PREV, prevItem);
         }
 
         // Next page
         if ((currentPage + 1) * BADGES_PER_PAGE < badges.size()) {
             ItemStack nextItem = new ItemStack(Items.ARROW);
-            nextItem.set(DataComponentTypes.ITEM_NAME, Text.literal("§aNext Page"));
-            nextItem.set(DataComponentTypes.LORE, new LoreComponent(List.of(
-                    Text.literal("§7Page " + (currentPage + 2) + " of " + totalPages)
-            )));
+            nextItem.set(DataComponentTypes.ITEM_NAME, NEXT_PAGE_NAME);
+            nextItem.set(DataComponentTypes.LORE, new LoreComponent(List.of(pageLine(currentPage + 2, totalPages))));
             inventory.setStack(NAV_NEXT, nextItem);
         }
     }
 
+    private static Text pageLine(int page, int totalPages) {
+        return Text.literal("Page " + page + " of " + totalPages).formatted(Formatting.GRAY);
+    }
+
     private void setupDisplayCasePreview() {
         Inventory inventory = getInventory();
         List<Identifier> displayBadges = playerData.getDisplayBadges();
@@ -390,20 +483,16 @@ public class BadgeEditorScreenHandler extends GenericContainerScreenHandler {
             if (badgeId != null) {
                 Badge badge = BadgeRegistry.getBadge(badgeId);
                 if (badge != null && playerData.hasBadge(badgeId)) {
-                    ItemStack item = badge.getDisplayItem().copy();
-                    item.set(DataComponentTypes.ITEM_NAME, Text.literal("§e" + badge.getName()));
-                    item.set(DataComponentTypes.LORE, new LoreComponent(List.of(
-                            Text.literal("§7In Display Case"),
-                            Text.literal("§7Click to remove")
-                    )));
+                    ItemStack item = badge.copyDisplayItem();
+                    item.set(DataComponentTypes.ITEM_NAME, badge.getDisplayNameText());
+                    item.set(DataComponentTypes.LORE, IN_DISPLAY_CASE_LORE);
+                    tagBadgeId(item, badgeId);
                     inventory.setStack(slot, item);
                 }
             } else {
                 ItemStack emptyItem = new ItemStack(Items.BLACK_STAINED_GLASS_PANE);
-                emptyItem.set(DataComponentTypes.ITEM_NAME, Text.literal("§7Empty Display Slot"));
-                emptyItem.set(DataComponentTypes.LORE, new LoreComponent(List.of(
-                        Text.literal("§7Drag a badge here to display it")
-                )));
+                emptyItem.set(DataComponentTypes.ITEM_NAME, EMPTY_DISPLAY_SLOT_NAME);
+                emptyItem.set(DataComponentTypes.LORE, EMPTY_DISPLAY_SLOT_LORE);
                 inventory.setStack(slot, emptyItem);
             }
         }
@@ -411,6 +500,15 @@ public class BadgeEditorScreenHandler extends GenericContainerScreenHandler {
 
     @Override
     public ItemStack quickMove(PlayerEntity player, int slot) {
+        long start = BadgeTickBudget.begin();
+        try {
+            return handleQuickMove(player, slot);
+        } finally {
+            BadgeTickBudget.end(BadgeTickBudget.Section.SCREEN_QUICK_MOVE, start);
+        }
+    }
+
+    private ItemStack handleQuickMove(PlayerEntity player, int slot) {
         // Handle shift-clicking from badge area to display case
         if (slot >= BADGE_AREA_START && slot <= BADGE_AREA_END) {
             ItemStack clickedStack = this.getSlot(slot).getStack();
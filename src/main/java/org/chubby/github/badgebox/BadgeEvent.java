@@ -0,0 +1,22 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.util.Identifier;
+
+import java.util.UUID;
+
+// Typed changes to a player's badges, published through BadgeEvents
+public sealed interface BadgeEvent permits BadgeEvent.Granted, BadgeEvent.Revoked, BadgeEvent.DisplayChanged {
+    UUID playerId();
+    long timestamp();
+
+    record Granted(UUID playerId, Identifier badgeId, long timestamp) implements BadgeEvent {
+    }
+
+    record Revoked(UUID playerId, Identifier badgeId, long timestamp) implements BadgeEvent {
+    }
+
+    // previousBadgeId or badgeId may be null for an empty slot
+    record DisplayChanged(UUID playerId, int slot, Identifier previousBadgeId, Identifier badgeId,
+                          long timestamp) implements BadgeEvent {
+    }
+}
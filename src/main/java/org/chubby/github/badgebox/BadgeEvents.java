@@ -0,0 +1,150 @@
+package org.chubby.github.badgebox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Badge change notifications. PlayerBadgeData publishes into a lock-free ring buffer;
+// the server thread drains it once per tick, calls synchronous listeners inline and hands
+// the batch to asynchronous listeners on a worker pool. When the ring or the worker queue
+// is full, events are dropped and counted rather than slowing down the mutation.
+public class BadgeEvents {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeEvents");
+
+    private static final List<Consumer<BadgeEvent>> listeners = new CopyOnWriteArrayList<>();
+    private static final List<Consumer<BadgeEvent>> asyncListeners = new CopyOnWriteArrayList<>();
+
+    private static final LongAdder published = new LongAdder();
+    private static final LongAdder dropped = new LongAdder();
+    private static final LongAdder asyncDropped = new LongAdder();
+
+    private static volatile BadgeEventRingBuffer<BadgeEvent> ring;
+    private static ThreadPoolExecutor asyncExecutor;
+
+    // Listener is called on the server thread, in publish order
+    public static void registerListener(Consumer<BadgeEvent> listener) {
+        listeners.add(listener);
+    }
+
+    // Listener is called on a worker thread; it must not touch the world or live player objects
+    public static void registerAsyncListener(Consumer<BadgeEvent> listener) {
+        asyncListeners.add(listener);
+    }
+
+    public static synchronized void start() {
+        if (ring != null) return;
+
+        BadgeConfig config = BadgeConfig.get();
+        AtomicInteger threadCount = new AtomicInteger();
+        asyncExecutor = new ThreadPoolExecutor(
+                config.asyncEventThreads, config.asyncEventThreads,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.asyncEventQueueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "BadgeBox-Events-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        asyncExecutor.allowCoreThreadTimeOut(true);
+        ring = new BadgeEventRingBuffer<>(config.eventBufferSize);
+    }
+
+    public static synchronized void stop() {
+        if (ring == null) return;
+
+        // Deliver whatever is still queued before shutting the workers down
+        drain();
+        ring = null;
+        asyncExecutor.shutdown();
+        try {
+            if (!asyncExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOGGER.warn("Async badge event listeners did not finish in time");
+                asyncExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            asyncExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        asyncExecutor = null;
+    }
+
+    // Safe from any thread; never blocks. Returns false if the event was dropped.
+    public static boolean publish(BadgeEvent event) {
+        BadgeEventRingBuffer<BadgeEvent> buffer = ring;
+        if (buffer == null) return false;
+
+        if (!buffer.offer(event)) {
+            dropped.increment();
+            return false;
+        }
+        published.increment();
+        return true;
+    }
+
+    // Called on the server thread at the end of every tick
+    public static void drain() {
+        BadgeEventRingBuffer<BadgeEvent> buffer = ring;
+        if (buffer == null) return;
+
+        List<BadgeEvent> batch = null;
+        BadgeEvent event;
+        while ((event = buffer.poll()) != null) {
+            for (Consumer<BadgeEvent> listener : listeners) {
+                dispatch(listener, event);
+            }
+            if (!asyncListeners.isEmpty()) {
+                if (batch == null) batch = new ArrayList<>();
+                batch.add(event);
+            }
+        }
+
+        if (batch != null) {
+            List<BadgeEvent> events = batch;
+            try {
+                asyncExecutor.execute(() -> {
+                    for (BadgeEvent asyncEvent : events) {
+                        for (Consumer<BadgeEvent> listener : asyncListeners) {
+                            dispatch(listener, asyncEvent);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                asyncDropped.add(events.size());
+            }
+        }
+    }
+
+    private static void dispatch(Consumer<BadgeEvent> listener, BadgeEvent event) {
+        try {
+            listener.accept(event);
+        } catch (Exception e) {
+            LOGGER.error("Badge event listener failed on {}", event, e);
+        }
+    }
+
+    public static long getPublishedCount() {
+        return published.sum();
+    }
+
+    // Events lost because the ring buffer was full
+    public static long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    // Events lost because the async listener queue was full
+    public static long getAsyncDroppedCount() {
+        return asyncDropped.sum();
+    }
+
+    public static int getPendingCount() {
+        BadgeEventRingBuffer<BadgeEvent> buffer = ring;
+        return buffer == null ? 0 : buffer.size();
+    }
+}
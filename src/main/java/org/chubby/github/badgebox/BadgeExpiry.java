@@ -0,0 +1,142 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+import net.minecraft.util.Identifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+// Expiry of time-limited grants. Deadlines live in each player's snapshot (and so in
+// player_data.dat); this class only keeps a timing wheel of pending deadlines, rebuilt from the
+// loaded data on startup and advanced once per server tick. A wheel entry is checked against the
+// player's current deadline when it fires, so re-grants and manual removals need no cancellation.
+// Server thread only.
+public class BadgeExpiry {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeExpiry");
+    private static final long TICK_MILLIS = 1000;
+    // Longer grants should be permanent; the cap also keeps now + duration far from overflow
+    static final long MAX_DURATION_MILLIS = 100L * 365 * 24 * 60 * 60 * 1000;
+
+    private record Pending(UUID playerId, Identifier badgeId, long expiresAt) {
+    }
+
+    private static BadgeTimingWheel<Pending> wheel;
+
+    // Call after player data is loaded
+    public static void start() {
+        wheel = new BadgeTimingWheel<>(System.currentTimeMillis() / TICK_MILLIS);
+
+        int recovered = 0;
+        for (Map.Entry<UUID, PlayerBadgeData.Snapshot> entry : BadgeDataManager.snapshotPlayerData().entrySet()) {
+            for (Map.Entry<Identifier, Long> expiry : entry.getValue().expiries().entrySet()) {
+                schedule(entry.getKey(), expiry.getKey(), expiry.getValue());
+                recovered++;
+            }
+        }
+        LOGGER.info("Scheduled {} pending badge expiries", recovered);
+    }
+
+    public static void stop() {
+        wheel = null;
+    }
+
+    public static int getPendingCount() {
+        return wheel != null ? wheel.size() : 0;
+    }
+
+    // Grant badges that expire at the given epoch millis, and schedule their removal.
+    // Returns the badges that were newly added.
+    public static List<Identifier> grant(UUID playerId, Collection<Identifier> badgeIds, long expiresAt) {
+        PlayerBadgeData data = BadgeDataManager.getPlayerData(playerId);
+        List<Identifier> added = data.addBadges(badgeIds, expiresAt);
+
+        for (Identifier badgeId : badgeIds) {
+            // Schedule whatever deadline won, which may be a later one the player already had
+            long expiry = data.getExpiry(badgeId);
+            if (expiry != PlayerBadgeData.PERMANENT) {
+                schedule(playerId, badgeId, expiry);
+            }
+        }
+        return added;
+    }
+
+    // Schedule every timed grant in a snapshot replicated from another server
+    static void scheduleAll(UUID playerId, PlayerBadgeData.Snapshot snapshot) {
+        for (Map.Entry<Identifier, Long> expiry : snapshot.expiries().entrySet()) {
+            schedule(playerId, expiry.getKey(), expiry.getValue());
+        }
+    }
+
+    private static void schedule(UUID playerId, Identifier badgeId, long expiresAt) {
+        if (wheel == null) return;
+        // Round up so a badge never expires before its deadline
+        wheel.schedule((expiresAt + TICK_MILLIS - 1) / TICK_MILLIS, new Pending(playerId, badgeId, expiresAt));
+    }
+
+    // Called on the server thread at the end of every tick
+    public static void tick(MinecraftServer server) {
+        if (wheel == null) return;
+
+        long nowTick = System.currentTimeMillis() / TICK_MILLIS;
+        if (nowTick <= wheel.getCurrentTick()) return;
+
+        Map<UUID, List<Identifier>> expired = new LinkedHashMap<>();
+        wheel.advanceTo(nowTick, pending -> {
+            PlayerBadgeData data = BadgeDataManager.findPlayerData(pending.playerId());
+            // Stale entry: the badge was removed, made permanent or extended since this was scheduled
+            if (data == null || data.getExpiry(pending.badgeId()) != pending.expiresAt()) return;
+            expired.computeIfAbsent(pending.playerId(), key -> new ArrayList<>()).add(pending.badgeId());
+        });
+        if (expired.isEmpty()) return;
+
+        for (Map.Entry<UUID, List<Identifier>> entry : expired.entrySet()) {
+            List<Identifier> removed = BadgeDataManager.findPlayerData(entry.getKey()).removeBadges(entry.getValue());
+            ServerPlayerEntity player = server.getPlayerManager().getPlayer(entry.getKey());
+            if (player != null) {
+                for (Identifier badgeId : removed) {
+                    Badge badge = BadgeRegistry.getBadge(badgeId);
+                    player.sendMessage(Text.literal("Your badge has expired: ").formatted(Formatting.GRAY)
+                            .append(badge != null ? badge.getNameText() : Text.literal(badgeId.toString())));
+                }
+            }
+        }
+
+        BadgeDataManager.savePlayerData();
+        BadgeNetworking.broadcastBadgeDataUpdates(server, expired.keySet());
+    }
+
+    // Parses durations such as "30d", "12h", "90m", "45s" or "1d12h". Returns millis, or -1 if invalid
+    // or longer than MAX_DURATION_MILLIS.
+    public static long parseDuration(String text) {
+        long total = 0;
+        long number = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = (number < 0 ? 0 : number) * 10 + (c - '0');
+                if (number > 1_000_000) return -1;
+                continue;
+            }
+            if (number < 0) return -1;
+
+            long unit = switch (Character.toLowerCase(c)) {
+                case 'w' -> 7L * 24 * 60 * 60 * 1000;
+                case 'd' -> 24L * 60 * 60 * 1000;
+                case 'h' -> 60L * 60 * 1000;
+                case 'm' -> 60L * 1000;
+                case 's' -> 1000L;
+                default -> -1;
+            };
+            if (unit < 0) return -1;
+            // Each term is at most a million weeks, so neither step can overflow
+            total += number * unit;
+            if (total > MAX_DURATION_MILLIS) return -1;
+            number = -1;
+        }
+        return number < 0 && total > 0 ? total : -1;
+    }
+}
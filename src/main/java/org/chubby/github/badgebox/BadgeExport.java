@@ -0,0 +1,209 @@
+package org.chubby.github.badgebox;
+
+import com.google.gson.stream.JsonWriter;
+import net.minecraft.util.Identifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+// Streams badge ownership to a file for analytics. A background thread walks the archive one shard
+// at a time, then the live records, and writes each player's immutable snapshot as it reaches them
+// through a buffered (optionally gzip) stream, so memory does not grow with the population. Live
+// records are read from memory rather than the store, which holds the same data as of its last
+// save. Each player's rows are consistent, but the file is not one point-in-time cut: a grant made
+// during the export may or may not appear. Compaction is held off while the export runs; a player
+// restored from the archive mid-export may be written twice, but nobody is left out.
+// CSV has one row per owned badge; JSON Lines has one object per player.
+public class BadgeExport {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeExport");
+    private static final int PROGRESS_STEPS = 10;
+
+    public enum Format {
+        CSV("csv"), JSONL("jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    public record Progress(int players, int totalPlayers, long rows) {
+    }
+
+    public record Result(Path file, int players, long rows, long bytes, long nanos) {
+    }
+
+    // Default location: config/badgebox/exports/badges-<timestamp>.<ext>[.gz]
+    public static Path defaultFile(Format format, boolean gzip) {
+        return BadgeDataManager.getConfigDirectory().resolve("exports")
+                .resolve("badges-" + System.currentTimeMillis() + "." + format.extension() + (gzip ? ".gz" : ""));
+    }
+
+    // Progress is reported from the export thread about every tenth of the players, against the
+    // player count when the export started. Returns null if an export or a compaction is running.
+    public static CompletableFuture<Result> export(Path file, Format format, boolean gzip, Consumer<Progress> progress) {
+        if (!BadgeCompaction.tryHold()) return null;
+
+        int expectedPlayers = BadgeArchive.size() + BadgeDataManager.getPlayerRecordCount();
+        BadgeRegistry.Snapshot registry = BadgeRegistry.snapshot();
+
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                result.complete(write(file, format, gzip, expectedPlayers, registry, progress));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Badge export to {} failed", file, e);
+                result.completeExceptionally(e);
+            } finally {
+                BadgeCompaction.release();
+            }
+        }, "BadgeBox-Export");
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    // Export thread
+    private static Result write(Path file, Format format, boolean gzip, int expectedPlayers,
+                                BadgeRegistry.Snapshot registry, Consumer<Progress> progress) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        // Written under a temporary name so a reader never picks up a half-written export
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        OutputStream stream = new BufferedOutputStream(Files.newOutputStream(tempFile), 64 * 1024);
+        if (gzip) stream = new GZIPOutputStream(stream, 64 * 1024);
+        int players;
+        long rows;
+        try (Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8)) {
+            if (format == Format.CSV) {
+                writer.write("player_id,player_name,badge_id,category,expires_at,display_slot\n");
+            }
+            Output output = new Output(writer, format, registry, progress, expectedPlayers);
+            BadgeArchive.forEach((playerId, snapshot) -> {
+                // Restored since it was archived; written with the live records instead
+                if (BadgeDataManager.peekPlayerData(playerId) == null) output.write(playerId, snapshot);
+            });
+            for (PlayerBadgeData data : BadgeDataManager.playerRecords()) {
+                output.write(data.getPlayerId(), data.snapshot());
+            }
+            players = output.players;
+            rows = output.rows;
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+
+        Result result = new Result(file, players, rows, Files.size(file), System.nanoTime() - start);
+        LOGGER.info("Exported {} badge rows for {} players to {} ({} bytes) in {} ms", result.rows(),
+                result.players(), file, result.bytes(), result.nanos() / 1_000_000);
+        return result;
+    }
+
+    // Writes one player at a time and counts what was written. Export thread only.
+    private static final class Output {
+        private final Writer writer;
+        private final Format format;
+        private final BadgeRegistry.Snapshot registry;
+        private final Consumer<Progress> progress;
+        private final int expectedPlayers;
+        private final int step;
+        private int players;
+        private long rows;
+
+        Output(Writer writer, Format format, BadgeRegistry.Snapshot registry, Consumer<Progress> progress,
+               int expectedPlayers) {
+            this.writer = writer;
+            this.format = format;
+            this.registry = registry;
+            this.progress = progress;
+            this.expectedPlayers = expectedPlayers;
+            this.step = Math.max(1, expectedPlayers / PROGRESS_STEPS);
+        }
+
+        void write(UUID playerId, PlayerBadgeData.Snapshot snapshot) throws IOException {
+            rows += format == Format.CSV
+                    ? writeCsv(writer, playerId, snapshot, registry)
+                    : writeJsonLine(writer, playerId, snapshot, registry);
+
+            players++;
+            if (progress != null && players % step == 0 && players < expectedPlayers) {
+                progress.accept(new Progress(players, expectedPlayers, rows));
+            }
+        }
+    }
+
+    private static int writeCsv(Writer writer, UUID playerId, PlayerBadgeData.Snapshot snapshot,
+                                BadgeRegistry.Snapshot registry) throws IOException {
+        String prefix = playerId + "," + csv(snapshot.displayName()) + ",";
+        for (Identifier badgeId : snapshot.ownedBadges()) {
+            long expiry = snapshot.getExpiry(badgeId);
+            int slot = snapshot.displayBadges().indexOf(badgeId);
+            writer.write(prefix);
+            writer.write(csv(badgeId.toString()));
+            writer.write(',');
+            writer.write(csv(category(registry, badgeId)));
+            writer.write(',');
+            if (expiry != PlayerBadgeData.PERMANENT) writer.write(Long.toString(expiry));
+            writer.write(',');
+            if (slot >= 0) writer.write(Integer.toString(slot));
+            writer.write('\n');
+        }
+        return snapshot.ownedBadges().size();
+    }
+
+    private static int writeJsonLine(Writer writer, UUID playerId, PlayerBadgeData.Snapshot snapshot,
+                                     BadgeRegistry.Snapshot registry) throws IOException {
+        // A JsonWriter per line. It writes straight through to the buffered writer, so it is
+        // neither flushed nor closed, either of which would reach the file.
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.name("player").value(playerId.toString());
+        json.name("name").value(snapshot.displayName());
+        json.name("badges").beginArray();
+        for (Identifier badgeId : snapshot.ownedBadges()) {
+            json.beginObject();
+            json.name("id").value(badgeId.toString());
+            json.name("category").value(category(registry, badgeId));
+            long expiry = snapshot.getExpiry(badgeId);
+            if (expiry != PlayerBadgeData.PERMANENT) json.name("expires").value(expiry);
+            json.endObject();
+        }
+        json.endArray();
+        json.name("display").beginArray();
+        for (Identifier badgeId : snapshot.displayBadges()) {
+            if (badgeId != null) {
+                json.value(badgeId.toString());
+            } else {
+                json.nullValue();
+            }
+        }
+        json.endArray();
+        json.endObject();
+        writer.write('\n');
+        return 1;
+    }
+
+    // Badges removed from the catalog are still exported, with an empty category
+    private static String category(BadgeRegistry.Snapshot registry, Identifier badgeId) {
+        Badge badge = registry.getBadge(badgeId);
+        return badge != null ? badge.getCategory() : "";
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
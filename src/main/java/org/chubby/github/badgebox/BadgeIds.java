@@ -0,0 +1,71 @@
+package org.chubby.github.badgebox;
+
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Identifier;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Canonical badge ids. A string naming a catalog badge resolves to the registry's own Identifier
+// (and ordinal) without allocating; anything else is parsed once and kept in a small LRU side
+// table, so ids of removed badges in old player files, or junk from clients, are shared rather
+// than allocated per record. Safe to call from any thread.
+public final class BadgeIds {
+    private static final int UNKNOWN_CAPACITY = 4096;
+
+    private static final Map<String, Identifier> unknown = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Identifier> eldest) {
+                    return size() > UNKNOWN_CAPACITY;
+                }
+            });
+
+    private BadgeIds() {
+    }
+
+    // Canonical Identifier for a full "namespace:path" string, or null if it is not a valid id
+    public static Identifier intern(String raw) {
+        Badge badge = BadgeRegistry.snapshot().getBadgeByIdString(raw);
+        if (badge != null) return badge.getId();
+
+        Identifier id = unknown.get(raw);
+        if (id == null) {
+            id = Identifier.tryParse(raw);
+            if (id != null) unknown.put(raw, id);
+        }
+        return id;
+    }
+
+    // Canonical Identifier of a catalog badge, or null; never touches the side table
+    public static Identifier lookup(String raw) {
+        Badge badge = BadgeRegistry.snapshot().getBadgeByIdString(raw);
+        return badge != null ? badge.getId() : null;
+    }
+
+    // Ordinal of the catalog badge with this id, or -1
+    public static int ordinal(String raw) {
+        Badge badge = BadgeRegistry.snapshot().getBadgeByIdString(raw);
+        return badge != null ? badge.getOrdinal() : -1;
+    }
+
+    // Same wire format as PacketByteBuf.readIdentifier
+    public static Identifier read(PacketByteBuf buf) {
+        String raw = buf.readString();
+        Identifier id = intern(raw);
+        if (id == null) {
+            throw new DecoderException("Invalid badge id: " + raw);
+        }
+        return id;
+    }
+
+    public static int getUnknownCount() {
+        return unknown.size();
+    }
+
+    static void clearUnknown() {
+        unknown.clear();
+    }
+}
@@ -0,0 +1,222 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.text.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runtime instrumentation. Recording only touches LongAdders and BadgeHistograms, so it
+// allocates nothing and can be called from the server thread or netty threads.
+// Exposed through /badge metrics and as JMX MBeans.
+public class BadgeMetrics implements BadgeMetricsMXBean {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeMetrics");
+    private static final String JMX_DOMAIN = "org.chubby.github.badgebox";
+    private static final BadgeMetrics INSTANCE = new BadgeMetrics();
+
+    private static final BadgeHistogram saveNanos = new BadgeHistogram();
+    private static final BadgeHistogram loadNanos = new BadgeHistogram();
+    private static final LongAdder bytesWritten = new LongAdder();
+    private static final LongAdder playerDataHits = new LongAdder();
+    private static final LongAdder playerDataMisses = new LongAdder();
+    private static final Map<CustomPayload.Id<?>, PayloadMetrics> payloads = new ConcurrentHashMap<>();
+    private static final List<ObjectName> registeredBeans = new ArrayList<>();
+
+    public static class PayloadMetrics implements BadgePayloadMetricsMXBean {
+        private final String name;
+        private final LongAdder packetsSent = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder packetsReceived = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final BadgeHistogram handlerNanos = new BadgeHistogram();
+
+        private PayloadMetrics(String name) {
+            this.name = name;
+        }
+
+        public void recordSent(int bytes) {
+            packetsSent.increment();
+            bytesSent.add(bytes);
+        }
+
+        public void recordReceived(int bytes) {
+            packetsReceived.increment();
+            bytesReceived.add(bytes);
+        }
+
+        public void recordHandler(long nanos) {
+            handlerNanos.record(nanos);
+        }
+
+        public String getName() { return name; }
+        @Override public long getPacketsSent() { return packetsSent.sum(); }
+        @Override public long getBytesSent() { return bytesSent.sum(); }
+        @Override public long getPacketsReceived() { return packetsReceived.sum(); }
+        @Override public long getBytesReceived() { return bytesReceived.sum(); }
+        @Override public long getHandlerCount() { return handlerNanos.getCount(); }
+        @Override public double getHandlerMeanMicros() { return handlerNanos.getMean() / 1_000.0; }
+        @Override public double getHandlerP99Micros() { return handlerNanos.getPercentile(99) / 1_000.0; }
+    }
+
+    public static PayloadMetrics payload(CustomPayload.Id<?> id) {
+        return payloads.computeIfAbsent(id, key -> new PayloadMetrics(key.id().getPath()));
+    }
+
+    // Wrap a payload codec so every encode and decode records the packet and its size on the wire
+    public static <T> PacketCodec<RegistryByteBuf, T> measured(CustomPayload.Id<?> id, PacketCodec<RegistryByteBuf, T> codec) {
+        PayloadMetrics metrics = payload(id);
+        return new PacketCodec<>() {
+            @Override
+            public T decode(RegistryByteBuf buf) {
+                int start = buf.readerIndex();
+                T value = codec.decode(buf);
+                metrics.recordReceived(buf.readerIndex() - start);
+                return value;
+            }
+
+            @Override
+            public void encode(RegistryByteBuf buf, T value) {
+                int start = buf.writerIndex();
+                codec.encode(buf, value);
+                metrics.recordSent(buf.writerIndex() - start);
+            }
+        };
+    }
+
+    public static void recordSave(long nanos, long bytes) {
+        saveNanos.record(nanos);
+        bytesWritten.add(bytes);
+    }
+
+    public static void recordLoad(long nanos) {
+        loadNanos.record(nanos);
+    }
+
+    public static void recordPlayerDataLookup(boolean hit) {
+        if (hit) {
+            playerDataHits.increment();
+        } else {
+            playerDataMisses.increment();
+        }
+    }
+
+    public static synchronized void registerMBeans() {
+        if (!registeredBeans.isEmpty()) return;
+
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName metricsName = new ObjectName(JMX_DOMAIN + ":type=Metrics");
+            registerBean(mBeanServer, INSTANCE, metricsName);
+
+            for (PayloadMetrics metrics : payloads.values()) {
+                registerBean(mBeanServer, metrics, new ObjectName(JMX_DOMAIN + ":type=Payload,name=" + metrics.getName()));
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to register BadgeBox JMX beans", e);
+        }
+    }
+
+    private static void registerBean(MBeanServer mBeanServer, Object bean, ObjectName name) throws Exception {
+        // An integrated server can start more than once per JVM
+        if (mBeanServer.isRegistered(name)) {
+            mBeanServer.unregisterMBean(name);
+        }
+        mBeanServer.registerMBean(bean, name);
+        registeredBeans.add(name);
+    }
+
+    public static synchronized void unregisterMBeans() {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredBeans) {
+            try {
+                mBeanServer.unregisterMBean(name);
+            } catch (Exception e) {
+                LOGGER.debug("Failed to unregister {}", name, e);
+            }
+        }
+        registeredBeans.clear();
+    }
+
+    // Human-readable summary for /badge metrics
+    public static List<Text> describe() {
+        List<Text> lines = new ArrayList<>();
+        lines.add(Text.literal("BadgeBox metrics:"));
+        lines.add(Text.literal(String.format("Saves: %d, mean %.2f ms, p99 %.2f ms, %d bytes written",
+                INSTANCE.getSaveCount(), INSTANCE.getSaveMeanMillis(), INSTANCE.getSaveP99Millis(), INSTANCE.getBytesWritten())));
+        lines.add(Text.literal(String.format("Loads: %d, mean %.2f ms",
+                INSTANCE.getLoadCount(), INSTANCE.getLoadMeanMillis())));
+        lines.add(Text.literal(String.format("Registry: %d badges, %d player records, player data hit rate %.1f%%",
+                INSTANCE.getRegisteredBadges(), INSTANCE.getPlayerRecords(), INSTANCE.getPlayerDataHitRate() * 100)));
+        lines.add(Text.literal(String.format("Events: %d published, %d dropped",
+                INSTANCE.getEventsPublished(), INSTANCE.getEventsDropped())));
+        lines.add(Text.literal(String.format("Server thread per busy tick: mean %.3f ms, p99 %.3f ms, max %.3f ms",
+                INSTANCE.getTickMeanMillis(), INSTANCE.getTickP99Millis(), BadgeTickBudget.getTickHistogram().getMax() / 1_000_000.0)));
+
+        for (PayloadMetrics metrics : payloads.values()) {
+            lines.add(Text.literal(String.format("- %s: sent %d (%d B), received %d (%d B), handler mean %.1f us, p99 %.1f us",
+                    metrics.getName(), metrics.getPacketsSent(), metrics.getBytesSent(),
+                    metrics.getPacketsReceived(), metrics.getBytesReceived(),
+                    metrics.getHandlerMeanMicros(), metrics.getHandlerP99Micros())));
+        }
+        return lines;
+    }
+
+    @Override public long getSaveCount() { return saveNanos.getCount(); }
+    @Override public double getSaveMeanMillis() { return saveNanos.getMean() / 1_000_000.0; }
+    @Override public double getSaveP99Millis() { return saveNanos.getPercentile(99) / 1_000_000.0; }
+    @Override public long getBytesWritten() { return bytesWritten.sum(); }
+    @Override public long getLoadCount() { return loadNanos.getCount(); }
+    @Override public double getLoadMeanMillis() { return loadNanos.getMean() / 1_000_000.0; }
+
+    @Override
+    public long getPacketsSent() {
+        long total = 0;
+        for (PayloadMetrics metrics : payloads.values()) total += metrics.getPacketsSent();
+        return total;
+    }
+
+    @Override
+    public long getPacketsReceived() {
+        long total = 0;
+        for (PayloadMetrics metrics : payloads.values()) total += metrics.getPacketsReceived();
+        return total;
+    }
+
+    @Override
+    public long getBytesSent() {
+        long total = 0;
+        for (PayloadMetrics metrics : payloads.values()) total += metrics.getBytesSent();
+        return total;
+    }
+
+    @Override
+    public long getBytesReceived() {
+        long total = 0;
+        for (PayloadMetrics metrics : payloads.values()) total += metrics.getBytesReceived();
+        return total;
+    }
+
+    @Override
+    public double getPlayerDataHitRate() {
+        long hits = playerDataHits.sum();
+        long total = hits + playerDataMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override public int getRegisteredBadges() { return BadgeRegistry.getAllBadges().size(); }
+    @Override public int getPlayerRecords() { return BadgeDataManager.getPlayerRecordCount(); }
+    @Override public long getEventsPublished() { return BadgeEvents.getPublishedCount(); }
+    @Override public double getTickMeanMillis() { return BadgeTickBudget.getTickHistogram().getMean() / 1_000_000.0; }
+    @Override public double getTickP99Millis() { return BadgeTickBudget.getTickHistogram().getPercentile(99) / 1_000_000.0; }
+    @Override public long getEventsDropped() { return BadgeEvents.getDroppedCount() + BadgeEvents.getAsyncDroppedCount(); }
+}
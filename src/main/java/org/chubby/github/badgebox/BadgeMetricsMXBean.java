@@ -0,0 +1,22 @@
+package org.chubby.github.badgebox;
+
+// JMX view of BadgeMetrics, registered as org.chubby.github.badgebox:type=Metrics
+public interface BadgeMetricsMXBean {
+    long getSaveCount();
+    double getSaveMeanMillis();
+    double getSaveP99Millis();
+    long getBytesWritten();
+    long getLoadCount();
+    double getLoadMeanMillis();
+    long getPacketsSent();
+    long getPacketsReceived();
+    long getBytesSent();
+    long getBytesReceived();
+    double getPlayerDataHitRate();
+    int getRegisteredBadges();
+    int getPlayerRecords();
+    long getEventsPublished();
+    long getEventsDropped();
+    double getTickMeanMillis();
+    double getTickP99Millis();
+}
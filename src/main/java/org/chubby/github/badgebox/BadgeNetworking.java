@@ -6,6 +6,7 @@ import net.minecraft.network.RegistryByteBuf;
 import net.minecraft.network.codec.PacketCodec;
 import net.minecraft.network.packet.CustomPayload;
 import net.minecraft.screen.SimpleNamedScreenHandlerFactory;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
@@ -15,9 +16,14 @@ import org.chubby.github.badgebox.BadgeDisplayScreenHandler;
 import org.chubby.github.badgebox.BadgeEditorScreenHandler;
 import org.chubby.github.badgebox.PlayerBadgeData;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public class BadgeNetworking {
+    // Player records vary with how many badges they hold, so batches are split by estimated size
+    private static final int DATA_CHUNK_BYTES = 256 * 1024;
 
     // Payload for opening badge editor
     public record OpenBadgeEditorPayload() implements CustomPayload {
@@ -67,7 +73,7 @@ public class BadgeNetworking {
                         buf -> {
                             int slot = buf.readInt();
                             boolean hasBadge = buf.readBoolean();
-                            Identifier badgeId = hasBadge ? buf.readIdentifier() : null;
+                            Identifier badgeId = hasBadge ? BadgeIds.read(buf) : null;
                             return new UpdateBadgeDisplayPayload(slot, badgeId);
                         }
                 );
@@ -87,7 +93,7 @@ public class BadgeNetworking {
                 PacketCodec.of(
                         (value, buf) -> {
                             buf.writeUuid(value.playerId);
-                            buf.writeNbt(value.data.toNbt());
+                            buf.writeNbt(value.data.toNetworkNbt());
                         },
                         buf -> {
                             UUID playerId = buf.readUuid();
@@ -102,6 +108,35 @@ public class BadgeNetworking {
         }
     }
 
+    // Payload for syncing several players' badge data in one packet
+    public record SyncBadgeDataBatchPayload(List<PlayerBadgeData> entries) implements CustomPayload {
+        public static final Id<SyncBadgeDataBatchPayload> ID =
+                new Id<>(Identifier.of(Badgebox.MOD_ID, "sync_badge_data_batch"));
+
+        public static final PacketCodec<RegistryByteBuf, SyncBadgeDataBatchPayload> CODEC =
+                PacketCodec.of(
+                        (value, buf) -> {
+                            buf.writeVarInt(value.entries.size());
+                            for (PlayerBadgeData data : value.entries) {
+                                buf.writeNbt(data.toNetworkNbt());
+                            }
+                        },
+                        buf -> {
+                            int size = buf.readVarInt();
+                            List<PlayerBadgeData> entries = new ArrayList<>(size);
+                            for (int i = 0; i < size; i++) {
+                                entries.add(PlayerBadgeData.fromNbt(buf.readNbt()));
+                            }
+                            return new SyncBadgeDataBatchPayload(entries);
+                        }
+                );
+
+        @Override
+        public Id<? extends CustomPayload> getId() {
+            return ID;
+        }
+    }
+
     // Payload for requesting badge data sync
     public record RequestBadgeDataSyncPayload(UUID targetPlayer) implements CustomPayload {
         public static final Id<RequestBadgeDataSyncPayload> ID =
@@ -121,12 +156,19 @@ public class BadgeNetworking {
 
     public static void registerPayloads() {
         // Register payload types
-        PayloadTypeRegistry.playC2S().register(OpenBadgeEditorPayload.ID, OpenBadgeEditorPayload.CODEC);
-        PayloadTypeRegistry.playC2S().register(OpenBadgeDisplayPayload.ID, OpenBadgeDisplayPayload.CODEC);
-        PayloadTypeRegistry.playC2S().register(UpdateBadgeDisplayPayload.ID, UpdateBadgeDisplayPayload.CODEC);
-        PayloadTypeRegistry.playC2S().register(RequestBadgeDataSyncPayload.ID, RequestBadgeDataSyncPayload.CODEC);
-
-        PayloadTypeRegistry.playS2C().register(SyncPlayerBadgeDataPayload.ID, SyncPlayerBadgeDataPayload.CODEC);
+        PayloadTypeRegistry.playC2S().register(OpenBadgeEditorPayload.ID,
+                BadgeMetrics.measured(OpenBadgeEditorPayload.ID, OpenBadgeEditorPayload.CODEC));
+        PayloadTypeRegistry.playC2S().register(OpenBadgeDisplayPayload.ID,
+                BadgeMetrics.measured(OpenBadgeDisplayPayload.ID, OpenBadgeDisplayPayload.CODEC));
+        PayloadTypeRegistry.playC2S().register(UpdateBadgeDisplayPayload.ID,
+                BadgeMetrics.measured(UpdateBadgeDisplayPayload.ID, UpdateBadgeDisplayPayload.CODEC));
+        PayloadTypeRegistry.playC2S().register(RequestBadgeDataSyncPayload.ID,
+                BadgeMetrics.measured(RequestBadgeDataSyncPayload.ID, RequestBadgeDataSyncPayload.CODEC));
+
+        PayloadTypeRegistry.playS2C().register(SyncPlayerBadgeDataPayload.ID,
+                BadgeMetrics.measured(SyncPlayerBadgeDataPayload.ID, SyncPlayerBadgeDataPayload.CODEC));
+        PayloadTypeRegistry.playS2C().register(SyncBadgeDataBatchPayload.ID,
+                BadgeMetrics.measured(SyncBadgeDataBatchPayload.ID, SyncBadgeDataBatchPayload.CODEC));
     }
 
     public static void registerServerHandlers() {
@@ -135,10 +177,14 @@ public class BadgeNetworking {
             ServerPlayerEntity player = context.player();
 
             context.server().execute(() -> {
+                long start = BadgeTickBudget.begin();
                 player.openHandledScreen(new SimpleNamedScreenHandlerFactory(
                         BadgeEditorScreenHandler::new,
                         Text.literal("Badge Editor - " + player.getName().getString())
                 ));
+
+                BadgeMetrics.payload(OpenBadgeEditorPayload.ID).recordHandler(
+                        BadgeTickBudget.end(BadgeTickBudget.Section.NETWORK, start));
             });
         });
 
@@ -148,13 +194,19 @@ public class BadgeNetworking {
             UUID targetPlayerId = payload.targetPlayer();
 
             context.server().execute(() -> {
-                PlayerBadgeData displayData = BadgeDataManager.getPlayerData(targetPlayerId);
+                long start = BadgeTickBudget.begin();
+                // Unknown players get an empty display that is never stored
+                PlayerBadgeData found = BadgeDataManager.findPlayerData(targetPlayerId);
+                PlayerBadgeData displayData = found != null ? found : new PlayerBadgeData(targetPlayerId);
 
                 player.openHandledScreen(new SimpleNamedScreenHandlerFactory(
                         (syncId, inventory, p) -> new BadgeDisplayScreenHandler(syncId, inventory, p, displayData),
                         Text.literal("Badge Display - " +
                                 (displayData.getDisplayName().isEmpty() ? "Player" : displayData.getDisplayName()))
                 ));
+
+                BadgeMetrics.payload(OpenBadgeDisplayPayload.ID).recordHandler(
+                        BadgeTickBudget.end(BadgeTickBudget.Section.NETWORK, start));
             });
         });
 
@@ -163,11 +215,11 @@ public class BadgeNetworking {
             ServerPlayerEntity player = context.player();
 
             context.server().execute(() -> {
-                PlayerBadgeData playerData = BadgeDataManager.getPlayerData(player.getUuid());
-                playerData.setDisplayBadge(payload.slot(), payload.badgeId());
+                long start = BadgeTickBudget.begin();
+                applyDisplayUpdate(player.getUuid(), payload);
 
-                // Save the updated data
-                BadgeDataManager.savePlayerData();
+                BadgeMetrics.payload(UpdateBadgeDisplayPayload.ID).recordHandler(
+                        BadgeTickBudget.end(BadgeTickBudget.Section.NETWORK, start));
             });
         });
 
@@ -177,22 +229,39 @@ public class BadgeNetworking {
             UUID targetPlayerId = payload.targetPlayer();
 
             context.server().execute(() -> {
-                PlayerBadgeData targetData = BadgeDataManager.getPlayerData(targetPlayerId);
+                long start = BadgeTickBudget.begin();
+                PlayerBadgeData found = BadgeDataManager.findPlayerData(targetPlayerId);
+                PlayerBadgeData targetData = found != null ? found : new PlayerBadgeData(targetPlayerId);
 
                 // Send the data back to the requesting player
                 ServerPlayNetworking.send(player, new SyncPlayerBadgeDataPayload(targetPlayerId, targetData));
+
+                BadgeMetrics.payload(RequestBadgeDataSyncPayload.ID).recordHandler(
+                        BadgeTickBudget.end(BadgeTickBudget.Section.NETWORK, start));
             });
         });
     }
 
+    // Server-side effect of an UpdateBadgeDisplayPayload, also driven directly by the load-test harness
+    static void applyDisplayUpdate(UUID playerId, UpdateBadgeDisplayPayload payload) {
+        PlayerBadgeData playerData = BadgeDataManager.findPlayerData(playerId);
+        if (playerData == null) return;
+        playerData.setDisplayBadge(payload.slot(), payload.badgeId());
+
+        // Save the updated data
+        BadgeDataManager.savePlayerData();
+    }
+
     // Utility methods for sending packets
     public static void sendBadgeDataSync(ServerPlayerEntity player, UUID targetPlayerId) {
-        PlayerBadgeData data = BadgeDataManager.getPlayerData(targetPlayerId);
-        ServerPlayNetworking.send(player, new SyncPlayerBadgeDataPayload(targetPlayerId, data));
+        PlayerBadgeData data = BadgeDataManager.findPlayerData(targetPlayerId);
+        ServerPlayNetworking.send(player, new SyncPlayerBadgeDataPayload(targetPlayerId,
+                data != null ? data : new PlayerBadgeData(targetPlayerId)));
     }
 
     public static void broadcastBadgeDataUpdate(ServerPlayerEntity updatedPlayer) {
-        PlayerBadgeData data = BadgeDataManager.getPlayerData(updatedPlayer.getUuid());
+        PlayerBadgeData data = BadgeDataManager.findPlayerData(updatedPlayer.getUuid());
+        if (data == null) return;
         SyncPlayerBadgeDataPayload payload = new SyncPlayerBadgeDataPayload(updatedPlayer.getUuid(), data);
 
         // Send to all players who might be viewing this player's badges
@@ -200,4 +269,46 @@ public class BadgeNetworking {
             ServerPlayNetworking.send(player, payload);
         }
     }
-}
\ No newline at end of file
+
+    // Coalesce several players' updates into as few packets per recipient as the size limit allows
+    public static void broadcastBadgeDataUpdates(MinecraftServer server, Collection<UUID> updatedPlayers) {
+        if (updatedPlayers.isEmpty()) return;
+
+        List<SyncBadgeDataBatchPayload> payloads = new ArrayList<>();
+        List<PlayerBadgeData> entries = new ArrayList<>();
+        int chunkBytes = 0;
+        for (UUID playerId : updatedPlayers) {
+            PlayerBadgeData data = BadgeDataManager.findPlayerData(playerId);
+            if (data == null) continue;
+
+            int size = estimatedSize(data.snapshot());
+            if (!entries.isEmpty() && chunkBytes + size > DATA_CHUNK_BYTES) {
+                payloads.add(new SyncBadgeDataBatchPayload(entries));
+                entries = new ArrayList<>();
+                chunkBytes = 0;
+            }
+            entries.add(data);
+            chunkBytes += size;
+        }
+        if (!entries.isEmpty()) payloads.add(new SyncBadgeDataBatchPayload(entries));
+        if (payloads.isEmpty()) return;
+
+        for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+            for (SyncBadgeDataBatchPayload payload : payloads) {
+                ServerPlayNetworking.send(player, payload);
+            }
+        }
+    }
+
+    // Upper bound on a record's NBT encoding: tag headers and keys, plus the id strings
+    private static int estimatedSize(PlayerBadgeData.Snapshot snapshot) {
+        int size = 128 + snapshot.displayName().length() * 3;
+        for (Identifier badgeId : snapshot.ownedBadges()) {
+            size += 16 + badgeId.toString().length();
+        }
+        for (Identifier badgeId : snapshot.displayBadges()) {
+            if (badgeId != null) size += 8 + badgeId.toString().length();
+        }
+        size += snapshot.expiries().size() * 16;
+        return size;
+    }}
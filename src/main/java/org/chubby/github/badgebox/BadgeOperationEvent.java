@@ -0,0 +1,17 @@
+package org.chubby.github.badgebox;
+
+import jdk.jfr.*;
+
+// JFR event for one timed BadgeBox entry point on the server thread
+@Name("org.chubby.github.badgebox.Operation")
+@Label("BadgeBox Operation")
+@Category("BadgeBox")
+@StackTrace(false)
+public class BadgeOperationEvent extends Event {
+    @Label("Section")
+    String section;
+
+    @Label("Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long durationNanos;
+}
@@ -0,0 +1,12 @@
+package org.chubby.github.badgebox;
+
+// JMX view of one payload type, registered as org.chubby.github.badgebox:type=Payload,name=<payload>
+public interface BadgePayloadMetricsMXBean {
+    long getPacketsSent();
+    long getBytesSent();
+    long getPacketsReceived();
+    long getBytesReceived();
+    long getHandlerCount();
+    double getHandlerMeanMicros();
+    double getHandlerP99Micros();
+}
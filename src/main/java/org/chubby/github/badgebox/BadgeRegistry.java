@@ -2,49 +2,179 @@ package org.chubby.github.badgebox;
 
 import net.minecraft.util.Identifier;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
+// The badge catalog. All state lives in one immutable Snapshot that is replaced as a whole,
+// so readers on any thread see either the old catalog or the new one, never a half-built mix.
 public class BadgeRegistry {
-    private static final Map<Identifier, Badge> badges = new ConcurrentHashMap<>();
-    private static final Map<String, List<Badge>> categories = new ConcurrentHashMap<>();
+    private static final List<String> DEFAULT_CATEGORIES = List.of("gym", "elite_four", "champion", "special", "event");
+    private static volatile Snapshot snapshot = build(List.of(), List.of(), null);
+
+    // Immutable copy of the registry, safe to read from any thread. badgesByOrdinal may contain
+    // nulls where a badge was removed by a reload.
+    public record Snapshot(Map<Identifier, Badge> badges, Map<String, List<Badge>> categories, List<Badge> badgesInOrder,
+                           List<Badge> badgesByOrdinal,
+                           Map<String, BadgeCategory> categoryDefinitions, Map<String, Badge> badgesByIdString) {
+        public Badge getBadge(Identifier id) {
+            return badges.get(id);
+        }
+
+        public List<Badge> getBadgesByCategory(String category) {
+            return categories.getOrDefault(category, List.of());
+        }
+
+        // Null for categories without an entry in categories.json
+        public BadgeCategory getCategoryDefinition(String category) {
+            return categoryDefinitions.get(category);
+        }
+
+        // Look up by the id's string form, for decoding without parsing an Identifier first
+        public Badge getBadgeByIdString(String id) {
+            return badgesByIdString.get(id);
+        }
+
+        public Badge getBadgeByOrdinal(int ordinal) {
+            return ordinal >= 0 && ordinal < badgesByOrdinal.size() ? badgesByOrdinal.get(ordinal) : null;
+        }
+    }
 
     public static void init() {
         // Initialize default categories
-        categories.put("gym", new ArrayList<>());
-        categories.put("elite_four", new ArrayList<>());
-        categories.put("champion", new ArrayList<>());
-        categories.put("special", new ArrayList<>());
-        categories.put("event", new ArrayList<>());
+        clearBadges();
+    }
+
+    // Builds a snapshot from badges in registration order; a later badge with the same id
+    // replaces the earlier one in place. Ordinals follow the id: an id already in `previous` keeps
+    // its ordinal and a new id gets the next unused one. Ordinals of removed ids stay empty until
+    // the catalog is cleared, so tables indexed by ordinal survive reloads.
+    private static Snapshot build(List<Badge> badgeList, List<BadgeCategory> definitions, Snapshot previous) {
+        Map<Identifier, Badge> badges = new LinkedHashMap<>();
+        for (Badge badge : badgeList) {
+            badges.put(badge.getId(), badge);
+        }
+        List<Badge> inOrder = List.copyOf(badges.values());
+
+        int nextOrdinal = previous != null ? previous.badgesByOrdinal().size() : 0;
+        for (Badge badge : inOrder) {
+            Badge old = previous != null ? previous.getBadge(badge.getId()) : null;
+            badge.setOrdinal(old != null ? old.getOrdinal() : nextOrdinal++);
+        }
+        Badge[] byOrdinal = new Badge[nextOrdinal];
+        for (Badge badge : inOrder) {
+            byOrdinal[badge.getOrdinal()] = badge;
+        }
+
+        Map<String, List<Badge>> categories = new LinkedHashMap<>();
+        for (String category : categoryOrder(inOrder, definitions)) {
+            categories.put(category, new ArrayList<>());
+        }
+        Map<String, Badge> badgesByIdString = new HashMap<>();
+        for (Badge badge : inOrder) {
+            categories.get(badge.getCategory()).add(badge);
+            badgesByIdString.put(badge.getId().toString(), badge);
+        }
+        categories.replaceAll((category, list) -> List.copyOf(list));
+
+        return new Snapshot(Collections.unmodifiableMap(badges), Collections.unmodifiableMap(categories),
+                inOrder, Collections.unmodifiableList(Arrays.asList(byOrdinal)), definitionMap(definitions),
+                Collections.unmodifiableMap(badgesByIdString));
+    }
+
+    // Defined categories by sortOrder, or the default categories when there are no definitions,
+    // then any others in the order their first badge appears
+    static List<String> categoryOrder(List<Badge> badges, List<BadgeCategory> definitions) {
+        Set<String> categories = new LinkedHashSet<>();
+        if (definitions.isEmpty()) {
+            categories.addAll(DEFAULT_CATEGORIES);
+        } else {
+            List<BadgeCategory> sorted = new ArrayList<>(definitions);
+            sorted.sort(Comparator.comparingInt(BadgeCategory::sortOrder));
+            for (BadgeCategory definition : sorted) {
+                categories.add(definition.id());
+            }
+        }
+        for (Badge badge : badges) {
+            categories.add(badge.getCategory());
+        }
+        return List.copyOf(categories);
+    }
+
+    static Map<String, BadgeCategory> definitionMap(List<BadgeCategory> definitions) {
+        Map<String, BadgeCategory> map = new HashMap<>();
+        for (BadgeCategory definition : definitions) {
+            map.put(definition.id(), definition);
+        }
+        return Collections.unmodifiableMap(map);
     }
 
-    public static void registerBadge(Badge badge) {
-        badges.put(badge.getId(), badge);
-        categories.computeIfAbsent(badge.getCategory(), k -> new ArrayList<>()).add(badge);
+    // Replace the whole catalog in one step. Safe from any thread; BadgeDataManager.activateCatalog
+    // clears cached category icons afterwards on the server thread.
+    public static synchronized void install(List<Badge> badges) {
+        install(badges, List.of());
+    }
+
+    public static synchronized void install(List<Badge> badges, List<BadgeCategory> categories) {
+        snapshot = build(badges, categories, snapshot);
+    }
+
+    // Install a freshly loaded catalog as a diff against the current one. Badges whose definition
+    // did not change keep their existing objects and ordinals. Returns what changed.
+    public static synchronized BadgeCatalogDiff apply(List<Badge> loaded, List<BadgeCategory> categories) {
+        Snapshot before = snapshot;
+        BadgeCatalogDiff diff = BadgeCatalogDiff.compute(before, loaded, categories);
+        if (!diff.isEmpty()) {
+            snapshot = build(diff.merged(), categories, before);
+            BadgeEditorScreenHandler.invalidateCategoryIcons(diff.redefinedCategories());
+        }
+        return diff;
+    }
+
+    // Copies the catalog, so prefer install() when registering many badges
+    public static synchronized void registerBadge(Badge badge) {
+        List<Badge> badges = new ArrayList<>(snapshot.badgesInOrder());
+        badges.add(badge);
+        snapshot = build(badges, List.copyOf(snapshot.categoryDefinitions().values()), snapshot);
+    }
+
+    public static Snapshot snapshot() {
+        return snapshot;
     }
 
     public static Badge getBadge(Identifier id) {
-        return badges.get(id);
+        return snapshot.badges().get(id);
+    }
+
+    // Ordinals are small stable indexes, for compact per-badge tables
+    public static Badge getBadgeByOrdinal(int ordinal) {
+        return snapshot.getBadgeByOrdinal(ordinal);
     }
 
     public static Collection<Badge> getAllBadges() {
-        return badges.values();
+        return snapshot.badges().values();
+    }
+
+    // Read-only list of every badge in registration order, for paging without a copy
+    public static List<Badge> getAllBadgesList() {
+        return snapshot.badgesInOrder();
     }
 
     public static List<Badge> getBadgesByCategory(String category) {
-        return categories.getOrDefault(category, new ArrayList<>());
+        return snapshot.getBadgesByCategory(category);
     }
 
     public static Set<String> getCategories() {
-        return categories.keySet();
+        return snapshot.categories().keySet();
+    }
+
+    public static BadgeCategory getCategoryDefinition(String category) {
+        return snapshot.getCategoryDefinition(category);
     }
 
     public static boolean badgeExists(Identifier id) {
-        return badges.containsKey(id);
+        return snapshot.badges().containsKey(id);
     }
 
-    public static void clearBadges() {
-        badges.clear();
-        categories.clear();
-        init();
+    // Also forgets every ordinal, so the next catalog is numbered from zero
+    public static synchronized void clearBadges() {
+        snapshot = build(List.of(), List.of(), null);
     }
-}
\ No newline at end of file
+}
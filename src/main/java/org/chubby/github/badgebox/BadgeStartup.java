@@ -0,0 +1,113 @@
+package org.chubby.github.badgebox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+// Overlaps the startup loads with world loading. SERVER_STARTING hands the badge catalog and
+// the player data to a background fork-join pool and returns. The parsed catalog goes into the
+// registry right away, so player records decode against it; SERVER_STARTED, which fires before
+// the first tick and so before any player can log in, waits for both loads, then rebuilds the
+// criteria and installs the player records on the server thread. Player saves are held off until
+// then so a failed start cannot truncate the file.
+public class BadgeStartup {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeStartup");
+
+    private static ForkJoinPool pool;
+    private static CompletableFuture<BadgeCatalogLoader.Result> catalog;
+    private static CompletableFuture<Map<UUID, PlayerBadgeData>> players;
+    private static volatile long catalogNanos;
+    private static volatile long playerNanos;
+    private static long startNanos;
+
+    public static void begin() {
+        startNanos = System.nanoTime();
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("BadgeBox-Startup-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        BadgeDataManager.setPlayerDataPending(true);
+
+        catalog = CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                BadgeCatalogLoader.Result result = BadgeDataManager.loadCatalog();
+                // Only the registry snapshot; the criteria wait for the server thread in finish()
+                BadgeDataManager.registerCatalog(result);
+                return result;
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to load the badge catalog", e);
+                return BadgeCatalogLoader.Result.failure("Failed to load the badge catalog: " + e, 0);
+            } finally {
+                catalogNanos = System.nanoTime() - start;
+            }
+        }, pool);
+
+        // Start the store's I/O while the catalog parses, then decode the records once the
+        // catalog is installed so their badge ids intern to the registry's Identifiers
+        PlayerBadgeStore store = BadgeDataManager.getStore();
+        CompletableFuture<Void> prefetch = CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                store.prefetch();
+            } finally {
+                playerNanos = System.nanoTime() - start;
+            }
+        }, pool);
+
+        players = prefetch.thenCombineAsync(catalog, (ignored, result) -> {
+            long start = System.nanoTime();
+            Map<UUID, PlayerBadgeData> loaded = store.load(pool);
+            playerNanos += System.nanoTime() - start;
+            if (loaded != null) BadgeMetrics.recordLoad(playerNanos);
+            return loaded;
+        }, pool).exceptionally(e -> {
+            LOGGER.error("Failed to load player data", e);
+            return null;
+        });
+    }
+
+    // Wait for the background loads and install their results. Server thread only.
+    public static void finish() {
+        if (pool == null) return;
+
+        long waitStart = System.nanoTime();
+        BadgeCatalogLoader.Result result = catalog.join();
+        Map<UUID, PlayerBadgeData> loaded = players.join();
+        long waitNanos = System.nanoTime() - waitStart;
+
+        if (!result.failed()) {
+            BadgeDataManager.activateCatalog(result, catalogNanos);
+        }
+        BadgeDataManager.installPlayerData(loaded);
+        BadgeDataManager.setPlayerDataPending(false);
+
+        LOGGER.info("Startup loading took {} ms: catalog {} ms and player data {} ms on {} threads, "
+                        + "server thread waited {} ms",
+                (System.nanoTime() - startNanos) / 1_000_000, catalogNanos / 1_000_000, playerNanos / 1_000_000,
+                pool.getParallelism(), waitNanos / 1_000_000);
+        shutdown();
+    }
+
+    // Called if the server stops before it finished starting
+    public static void cancel() {
+        if (pool == null) return;
+        LOGGER.warn("Server stopped before startup loading was installed; player data was not saved");
+        pool.shutdownNow();
+        shutdown();
+    }
+
+    private static void shutdown() {
+        pool.shutdown();
+        pool = null;
+        catalog = null;
+        players = null;
+    }
+}
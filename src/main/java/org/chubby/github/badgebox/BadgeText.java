@@ -0,0 +1,83 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.text.MutableText;
+import net.minecraft.text.Style;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class BadgeText {
+    // Modifier codes in the bit order used by Segment.modifiers
+    static final List<Formatting> MODIFIERS = List.of(
+            Formatting.BOLD, Formatting.ITALIC, Formatting.UNDERLINE, Formatting.STRIKETHROUGH, Formatting.OBFUSCATED);
+
+    // One run of text with a single style. A null color means the run uses the base style,
+    // which is how the same parsed string can be shown in several base colors.
+    public record Segment(String text, Formatting color, int modifiers) {
+    }
+
+    private BadgeText() {
+    }
+
+    // Split a string at its § codes, independent of any base style
+    public static List<Segment> segments(String raw) {
+        List<Segment> segments = new ArrayList<>();
+        Formatting color = null;
+        int modifiers = 0;
+        StringBuilder segment = new StringBuilder();
+
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c == '§' && i + 1 < raw.length()) {
+                Formatting formatting = Formatting.byCode(raw.charAt(i + 1));
+                if (formatting != null) {
+                    addSegment(segments, segment, color, modifiers);
+                    if (formatting == Formatting.RESET) {
+                        color = null;
+                        modifiers = 0;
+                    } else if (formatting.isColor()) {
+                        // A color code clears any modifiers, matching vanilla legacy formatting
+                        color = formatting;
+                        modifiers = 0;
+                    } else {
+                        modifiers |= 1 << MODIFIERS.indexOf(formatting);
+                    }
+                    i++;
+                    continue;
+                }
+            }
+            segment.append(c);
+        }
+        addSegment(segments, segment, color, modifiers);
+
+        return List.copyOf(segments);
+    }
+
+    // Build a styled Text from parsed segments. Meant to run once at load time; the result is
+    // shared and must not be mutated.
+    public static Text toText(List<Segment> segments, Style baseStyle) {
+        MutableText result = Text.empty();
+        for (Segment segment : segments) {
+            Style style = segment.color() == null ? baseStyle : Style.EMPTY.withColor(segment.color());
+            for (int bit = 0; bit < MODIFIERS.size(); bit++) {
+                if ((segment.modifiers() & (1 << bit)) != 0) {
+                    style = style.withFormatting(MODIFIERS.get(bit));
+                }
+            }
+            result.append(Text.literal(segment.text()).setStyle(style));
+        }
+        return result;
+    }
+
+    public static Text toText(List<Segment> segments, Formatting baseColor) {
+        return toText(segments, Style.EMPTY.withColor(baseColor));
+    }
+
+    private static void addSegment(List<Segment> segments, StringBuilder segment, Formatting color, int modifiers) {
+        if (segment.isEmpty()) return;
+        segments.add(new Segment(segment.toString(), color, modifiers));
+        segment.setLength(0);
+    }
+}
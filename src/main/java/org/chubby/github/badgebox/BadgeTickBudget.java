@@ -0,0 +1,170 @@
+package org.chubby.github.badgebox;
+
+import jdk.jfr.EventType;
+import net.minecraft.server.MinecraftServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Accounts the server-thread time spent in BadgeBox entry points per tick. Each entry point
+// is wrapped in begin()/end(); at the end of the tick the total is checked against the
+// configured budget and a warning with a per-section summary is logged when it is exceeded.
+// Calls from any other thread (client-side screen handlers, workers) are ignored.
+public class BadgeTickBudget {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BadgeTickBudget");
+    private static final int STACK_FRAMES = 6;
+
+    public enum Section {
+        NETWORK("network handlers"),
+        COMMAND("commands"),
+        SCREEN_CLICK("onSlotClick"),
+        SCREEN_QUICK_MOVE("quickMove"),
+        SAVE("saves"),
+        EVENTS("event listeners"),
+        AWARDS("automatic awards"),
+        EXPIRY("badge expiry"),
+        RELOAD("catalog reload");
+
+        private final String label;
+
+        Section(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Section[] SECTIONS = Section.values();
+    private static final EventType OPERATION_EVENT = EventType.getEventType(BadgeOperationEvent.class);
+    private static final EventType BUDGET_EVENT = EventType.getEventType(BadgeTickBudgetEvent.class);
+
+    // Only touched on the server thread
+    private static final long[] sectionNanos = new long[SECTIONS.length];
+    private static final int[] sectionCalls = new int[SECTIONS.length];
+    private static final BadgeHistogram tickNanos = new BadgeHistogram();
+    private static volatile Thread serverThread;
+    private static int depth;
+    private static long tickTotalNanos;
+    private static long slowestNanos;
+    private static Section slowestSection;
+    private static StackTraceElement[] slowestStack;
+    private static long lastWarningMillis;
+
+    public static void start(MinecraftServer server) {
+        serverThread = server.getThread();
+        reset();
+    }
+
+    public static void stop() {
+        serverThread = null;
+    }
+
+    public static long begin() {
+        if (Thread.currentThread() == serverThread) {
+            depth++;
+        }
+        return System.nanoTime();
+    }
+
+    // Returns the elapsed time so callers can feed it into other metrics
+    public static long end(Section section, long start) {
+        long elapsed = System.nanoTime() - start;
+        if (Thread.currentThread() != serverThread) return elapsed;
+
+        sectionNanos[section.ordinal()] += elapsed;
+        sectionCalls[section.ordinal()]++;
+
+        // Nested sections (a save inside a handler) only count once towards the tick total
+        if (--depth <= 0) {
+            depth = 0;
+            tickTotalNanos += elapsed;
+        }
+
+        if (elapsed > slowestNanos) {
+            slowestNanos = elapsed;
+            slowestSection = section;
+            // Only pay for a stack walk when this one operation already blew the budget
+            slowestStack = elapsed > budgetNanos() ? new Throwable().getStackTrace() : null;
+        }
+
+        if (OPERATION_EVENT.isEnabled()) {
+            BadgeOperationEvent event = new BadgeOperationEvent();
+            event.section = section.getLabel();
+            event.durationNanos = elapsed;
+            event.commit();
+        }
+        return elapsed;
+    }
+
+    // Called at the end of every server tick
+    public static void endTick() {
+        if (serverThread == null) return;
+
+        if (tickTotalNanos > 0) {
+            tickNanos.record(tickTotalNanos);
+        }
+
+        long budget = budgetNanos();
+        if (tickTotalNanos > budget) {
+            if (BUDGET_EVENT.isEnabled()) {
+                BadgeTickBudgetEvent event = new BadgeTickBudgetEvent();
+                event.usedNanos = tickTotalNanos;
+                event.budgetNanos = budget;
+                event.slowestSection = slowestSection != null ? slowestSection.getLabel() : "";
+                event.commit();
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastWarningMillis >= BadgeConfig.get().slowTickWarningIntervalSeconds * 1000L) {
+                lastWarningMillis = now;
+                LOGGER.warn(describeTick(budget));
+            }
+        }
+
+        reset();
+    }
+
+    public static BadgeHistogram getTickHistogram() {
+        return tickNanos;
+    }
+
+    private static long budgetNanos() {
+        return (long) (BadgeConfig.get().tickBudgetMillis * 1_000_000L);
+    }
+
+    private static String describeTick(long budget) {
+        StringBuilder summary = new StringBuilder(String.format("BadgeBox used %.2f ms of its %.2f ms tick budget:",
+                tickTotalNanos / 1_000_000.0, budget / 1_000_000.0));
+
+        for (Section section : SECTIONS) {
+            if (sectionCalls[section.ordinal()] > 0) {
+                summary.append(String.format(" %s %.2f ms (%d calls);", section.getLabel(),
+                        sectionNanos[section.ordinal()] / 1_000_000.0, sectionCalls[section.ordinal()]));
+            }
+        }
+
+        if (slowestStack != null) {
+            summary.append(String.format("%n  slowest: %s %.2f ms at", slowestSection.getLabel(), slowestNanos / 1_000_000.0));
+            int printed = 0;
+            for (StackTraceElement frame : slowestStack) {
+                if (frame.getClassName().equals(BadgeTickBudget.class.getName())) continue;
+                summary.append(System.lineSeparator()).append("    ").append(frame);
+                if (++printed >= STACK_FRAMES) break;
+            }
+        }
+        return summary.toString();
+    }
+
+    private static void reset() {
+        for (int i = 0; i < SECTIONS.length; i++) {
+            sectionNanos[i] = 0;
+            sectionCalls[i] = 0;
+        }
+        depth = 0;
+        tickTotalNanos = 0;
+        slowestNanos = 0;
+        slowestSection = null;
+        slowestStack = null;
+    }
+}
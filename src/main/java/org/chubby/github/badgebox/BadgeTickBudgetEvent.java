@@ -0,0 +1,21 @@
+package org.chubby.github.badgebox;
+
+import jdk.jfr.*;
+
+// JFR event emitted when BadgeBox exceeds its per-tick time budget
+@Name("org.chubby.github.badgebox.TickBudgetExceeded")
+@Label("BadgeBox Tick Budget Exceeded")
+@Category("BadgeBox")
+@StackTrace(false)
+public class BadgeTickBudgetEvent extends Event {
+    @Label("BadgeBox Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long usedNanos;
+
+    @Label("Budget")
+    @Timespan(Timespan.NANOSECONDS)
+    long budgetNanos;
+
+    @Label("Slowest Section")
+    String slowestSection;
+}
@@ -0,0 +1,112 @@
+package org.chubby.github.badgebox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel with 64 slots per level. Level 0 covers the next 64 ticks, level 1
+// the next 64^2, and so on; an entry moves down one level each time the wheel reaches its block,
+// so scheduling is O(1) and advancing costs O(1) per tick plus the entries actually due.
+// Six levels span 64^6 ticks, over 2,000 years at one-second ticks; anything further out waits
+// in the top level and is re-placed each time its slot comes round until it fits. Not thread-safe.
+final class BadgeTimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int DEFAULT_LEVELS = 6;
+
+    private record Timer<T>(long dueTick, T value) {
+    }
+
+    private final List<Timer<T>>[][] levels;
+    private long currentTick;
+    private int size;
+
+    BadgeTimingWheel(long startTick) {
+        this(startTick, DEFAULT_LEVELS);
+    }
+
+    // Fewer levels make the top-level overflow reachable in tests
+    @SuppressWarnings("unchecked")
+    BadgeTimingWheel(long startTick, int levelCount) {
+        this.levels = new List[levelCount][SLOTS];
+        this.currentTick = startTick;
+    }
+
+    long getCurrentTick() {
+        return currentTick;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Entries due at or before the current tick fire on the next advance
+    void schedule(long dueTick, T value) {
+        place(new Timer<>(Math.max(dueTick, currentTick + 1), value));
+        size++;
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.dueTick() - currentTick;
+        int level = 0;
+        while (level < levels.length - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) (timer.dueTick() >>> (SLOT_BITS * level)) & SLOT_MASK;
+
+        List<Timer<T>> bucket = levels[level][slot];
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            levels[level][slot] = bucket;
+        }
+        bucket.add(timer);
+    }
+
+    // Advance one tick at a time up to targetTick, handing every due entry to the consumer
+    void advanceTo(long targetTick, Consumer<T> expired) {
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // Cascade every higher level whose block starts at this tick, top-down
+            for (int level = levels.length - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK, expired);
+                }
+            }
+
+            List<Timer<T>> due = levels[0][(int) currentTick & SLOT_MASK];
+            if (due != null && !due.isEmpty()) {
+                levels[0][(int) currentTick & SLOT_MASK] = null;
+                fireOrReplace(due, expired);
+            }
+        }
+    }
+
+    private void cascade(int level, int slot, Consumer<T> expired) {
+        List<Timer<T>> bucket = levels[level][slot];
+        if (bucket == null || bucket.isEmpty()) return;
+
+        levels[level][slot] = null;
+        fireOrReplace(bucket, expired);
+    }
+
+    private void fireOrReplace(List<Timer<T>> timers, Consumer<T> expired) {
+        for (Timer<T> timer : timers) {
+            if (timer.dueTick() <= currentTick) {
+                size--;
+                expired.accept(timer.value());
+            } else {
+                place(timer);
+            }
+        }
+    }
+
+    void clear() {
+        for (List<Timer<T>>[] level : levels) {
+            Arrays.fill(level, null);
+        }
+        size = 0;
+    }
+}
@@ -2,13 +2,16 @@ package org.chubby.github.badgebox;
 
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.event.player.PlayerBlockBreakEvents;
 import net.fabricmc.fabric.api.itemgroup.v1.ItemGroupEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemGroups;
 import net.minecraft.item.Items;
 import net.minecraft.registry.Registries;
 import net.minecraft.registry.Registry;
+import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.util.Identifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,26 +33,69 @@ public class Badgebox implements ModInitializer {
         // Initialize networking
         BadgeNetworking.registerPayloads();
         BadgeNetworking.registerServerHandlers();
+        registerPlayerEvents();
 
         // Initialize components
         BadgeRegistry.init();
         BadgeCommands.register();
+        BadgeCriteria.register();
 
         // Register server lifecycle events
         ServerLifecycleEvents.SERVER_STARTING.register(server -> {
             BadgeDataManager.init(server);
-            BadgeDataManager.loadBadges();
-            BadgeDataManager.loadPlayerData();
+            BadgeTickBudget.start(server);
+            // Catalog and player data load in the background while the world loads
+            BadgeStartup.begin();
+            BadgeAsyncCommands.start();
+            BadgeEvents.start();
+            BadgeCatalogReloader.start();
+        });
+
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            long start = BadgeTickBudget.begin();
+            BadgeEvents.drain();
+            BadgeTickBudget.end(BadgeTickBudget.Section.EVENTS, start);
+
+            start = BadgeTickBudget.begin();
+            BadgeCriteria.flush(server);
+            BadgeTickBudget.end(BadgeTickBudget.Section.AWARDS, start);
+
+            start = BadgeTickBudget.begin();
+            BadgeExpiry.tick(server);
+            BadgeTickBudget.end(BadgeTickBudget.Section.EXPIRY, start);
+
+            start = BadgeTickBudget.begin();
+            BadgeCatalogReloader.tick(server);
+            BadgeTickBudget.end(BadgeTickBudget.Section.RELOAD, start);
+            BadgeTickBudget.endTick();
         });
 
         ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+            BadgeAsyncCommands.stop();
+            BadgeCompaction.stop();
+            BadgeBackups.stop();
+            BadgeCluster.stop();
+            BadgeCatalogReloader.stop();
+            BadgeEvents.stop();
             BadgeDataManager.saveBadges();
+            BadgeDataManager.closeStore();
+            BadgeExpiry.stop();
         });
 
-        // Register player join event to sync badge data
         ServerLifecycleEvents.SERVER_STARTED.register(server -> {
-            // You might want to add player join/leave events here
-            registerPlayerEvents();
+            // Install the startup loads before the first tick, and so before anyone can join
+            BadgeStartup.finish();
+            BadgeExpiry.start();
+            BadgeCompaction.start(server);
+            BadgeBackups.start(server);
+            BadgeCluster.start(server);
+            BadgeMetrics.registerMBeans();
+        });
+
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+            BadgeStartup.cancel();
+            BadgeTickBudget.stop();
+            BadgeMetrics.unregisterMBeans();
         });
     }
 
@@ -63,7 +109,18 @@ public class Badgebox implements ModInitializer {
     }
 
     private void registerPlayerEvents() {
-        // You can add player join/leave events here if needed
-        // For example, to sync badge data when players join
+        // Joining is what creates a player's record; lookups by UUID alone never do
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
+            ServerPlayerEntity player = handler.getPlayer();
+            PlayerBadgeData data = BadgeDataManager.getPlayerData(player.getUuid());
+            data.setDisplayName(player.getName().getString());
+            data.markSeen();
+        });
+
+        // Compaction measures inactivity from the last time a player was online
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            PlayerBadgeData data = BadgeDataManager.findPlayerData(handler.getPlayer().getUuid());
+            if (data != null) data.markSeen();
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtSizeTracker;
+import net.minecraft.util.Identifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// The original storage: every record in one compressed NBT file, player_data.dat, rewritten as a
+// whole on each save. Queries scan the in-memory records; recent grants are only known for the
+// current run.
+public class NbtPlayerBadgeStore implements PlayerBadgeStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger("NbtPlayerBadgeStore");
+    private static final int MAX_RECENT_GRANTS = 1000;
+    private static final Deque<Grant> recentGrants = new ArrayDeque<>();
+
+    static {
+        BadgeEvents.registerListener(event -> {
+            if (!(event instanceof BadgeEvent.Granted granted)) return;
+            PlayerBadgeData data = BadgeDataManager.peekPlayerData(granted.playerId());
+            Grant grant = new Grant(granted.playerId(), data != null ? data.getDisplayName() : "",
+                    granted.badgeId(), granted.timestamp());
+            synchronized (recentGrants) {
+                recentGrants.addFirst(grant);
+                if (recentGrants.size() > MAX_RECENT_GRANTS) recentGrants.removeLast();
+            }
+        });
+    }
+
+    private final Path file;
+    private volatile NbtCompound prefetched;
+
+    public NbtPlayerBadgeStore(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public String name() {
+        return "nbt";
+    }
+
+    // The file is a single compressed stream, so this part runs on one thread
+    @Override
+    public void prefetch() {
+        prefetched = read();
+    }
+
+    @Override
+    public Map<UUID, PlayerBadgeData> load(ForkJoinPool pool) {
+        NbtCompound rootNbt = prefetched != null ? prefetched : read();
+        prefetched = null;
+        if (rootNbt == null) return null;
+
+        List<String> keys = new ArrayList<>(rootNbt.getKeys());
+        Map<UUID, PlayerBadgeData> decoded = new ConcurrentHashMap<>(keys.size() * 4 / 3 + 1);
+        pool.invoke(new DecodeTask(rootNbt, keys, 0, keys.size(), decoded));
+        return decoded;
+    }
+
+    private NbtCompound read() {
+        if (!Files.exists(file)) {
+            LOGGER.info("No player data file found, starting fresh");
+            return null;
+        }
+
+        try {
+            return NbtIo.readCompressed(file, NbtSizeTracker.ofUnlimitedBytes());
+        } catch (IOException e) {
+            LOGGER.error("Failed to load player data", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void markDirty(UUID playerId) {
+        // Every save rewrites the whole file
+    }
+
+    @Override
+    public long save(Map<UUID, PlayerBadgeData> records) throws IOException {
+        NbtCompound rootNbt = new NbtCompound();
+        for (Map.Entry<UUID, PlayerBadgeData> entry : records.entrySet()) {
+            rootNbt.put(entry.getKey().toString(), entry.getValue().toNbt());
+        }
+
+        NbtIo.writeCompressed(rootNbt, file);
+        return Files.size(file);
+    }
+
+    @Override
+    public Holders findHolders(Identifier badgeId, int limit) throws InterruptedIOException {
+        List<String> names = new ArrayList<>();
+        for (PlayerBadgeData data : BadgeDataManager.playerRecords()) {
+            stopIfInterrupted();
+            PlayerBadgeData.Snapshot snapshot = data.snapshot();
+            if (snapshot.ownedBadges().contains(badgeId)) {
+                String displayName = snapshot.displayName();
+                names.add(displayName.isEmpty() ? data.getPlayerId().toString() : displayName);
+            }
+        }
+        Collections.sort(names);
+        return new Holders(names.size(), List.copyOf(names.subList(0, Math.min(limit, names.size()))));
+    }
+
+    @Override
+    public Map<Identifier, Integer> countHolders() throws InterruptedIOException {
+        Map<Identifier, Integer> counts = new HashMap<>();
+        for (PlayerBadgeData data : BadgeDataManager.playerRecords()) {
+            stopIfInterrupted();
+            for (Identifier badgeId : data.snapshot().ownedBadges()) {
+                counts.merge(badgeId, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    // These scans walk every record, so a caller that gives up on them can interrupt the thread
+    private static void stopIfInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Badge holder scan interrupted");
+        }
+    }
+
+    @Override
+    public List<Grant> recentGrants(int limit) {
+        synchronized (recentGrants) {
+            List<Grant> grants = new ArrayList<>(Math.min(limit, recentGrants.size()));
+            for (Grant grant : recentGrants) {
+                if (grants.size() >= limit) break;
+                grants.add(grant);
+            }
+            return grants;
+        }
+    }
+
+    // Splits the player keys in halves until a range is small enough to decode directly
+    private static final class DecodeTask extends RecursiveAction {
+        private static final int THRESHOLD = 512;
+
+        private final NbtCompound rootNbt;
+        private final List<String> keys;
+        private final int from;
+        private final int to;
+        private final Map<UUID, PlayerBadgeData> decoded;
+
+        DecodeTask(NbtCompound rootNbt, List<String> keys, int from, int to, Map<UUID, PlayerBadgeData> decoded) {
+            this.rootNbt = rootNbt;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.decoded = decoded;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new DecodeTask(rootNbt, keys, from, middle, decoded),
+                        new DecodeTask(rootNbt, keys, middle, to, decoded));
+                return;
+            }
+
+            for (int i = from; i < to; i++) {
+                String key = keys.get(i);
+                try {
+                    UUID playerId = UUID.fromString(key);
+                    decoded.put(playerId, PlayerBadgeData.fromNbt(rootNbt.getCompound(key)));
+                } catch (IllegalArgumentException e) {
+                    LOGGER.warn("Invalid UUID in player data: {}", key);
+                }
+            }
+        }
+    }
+}
@@ -2,75 +2,279 @@ package org.chubby.github.badgebox;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.util.Identifier;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class PlayerBadgeData {
+    public static final int DISPLAY_SLOTS = 8;
+    // Expiry value for grants that never expire
+    public static final long PERMANENT = 0L;
+
+    // Immutable view of a player's badges. Every mutation publishes a new snapshot,
+    // so savers, encoders and stats readers can iterate one without locking.
+    // expiries holds an epoch-millis deadline only for the owned badges that have one.
+    public record Snapshot(Set<Identifier> ownedBadges, List<Identifier> displayBadges, String displayName,
+                           Map<Identifier, Long> expiries) {
+        private static final Snapshot EMPTY = new Snapshot(
+                Set.of(), Collections.unmodifiableList(Arrays.asList(new Identifier[DISPLAY_SLOTS])), "", Map.of());
+
+        public static Snapshot empty() {
+            return EMPTY;
+        }
+
+        public long getExpiry(Identifier badgeId) {
+            Long expiry = expiries.get(badgeId);
+            return expiry != null ? expiry : PERMANENT;
+        }
+
+        private Snapshot withOwnedBadges(Set<Identifier> owned, List<Identifier> display, Map<Identifier, Long> expiry) {
+            return new Snapshot(Collections.unmodifiableSet(owned), display, displayName,
+                    expiry.isEmpty() ? Map.of() : Collections.unmodifiableMap(expiry));
+        }
+
+        private Snapshot withDisplayBadges(Identifier[] display) {
+            return new Snapshot(ownedBadges, Collections.unmodifiableList(Arrays.asList(display)), displayName, expiries);
+        }
+
+        private Snapshot withDisplayName(String name) {
+            return new Snapshot(ownedBadges, displayBadges, name, expiries);
+        }
+
+        // Expiries after removing the given badges; shares the current map when nothing changes
+        private Map<Identifier, Long> expiriesWithout(Collection<Identifier> badgeIds) {
+            if (expiries.isEmpty()) return expiries;
+            Map<Identifier, Long> remaining = new HashMap<>(expiries);
+            remaining.keySet().removeAll(badgeIds);
+            return remaining;
+        }
+    }
+
     private final UUID playerId;
-    private final Set<Identifier> ownedBadges;
-    private final List<Identifier> displayBadges; // 8 badges for display case
-    private String displayName;
+    private final AtomicReference<Snapshot> state;
+    // Epoch millis the player was last online, for compaction of inactive records
+    private volatile long lastSeen;
 
     public PlayerBadgeData(UUID playerId) {
         this.playerId = playerId;
-        this.ownedBadges = new HashSet<>();
-        this.displayBadges = new ArrayList<>(Collections.nCopies(8, null));
-        this.displayName = "";
+        this.state = new AtomicReference<>(Snapshot.empty());
+        this.lastSeen = System.currentTimeMillis();
     }
 
     public UUID getPlayerId() { return playerId; }
-    public Set<Identifier> getOwnedBadges() { return new HashSet<>(ownedBadges); }
-    public List<Identifier> getDisplayBadges() { return new ArrayList<>(displayBadges); }
-    public String getDisplayName() { return displayName; }
+    public Snapshot snapshot() { return state.get(); }
+    public long getLastSeen() { return lastSeen; }
+
+    public void markSeen() {
+        lastSeen = System.currentTimeMillis();
+    }
+
+    // Read-only views: both collections belong to the current snapshot, no copy is made
+    public Set<Identifier> getOwnedBadges() { return state.get().ownedBadges(); }
+    public List<Identifier> getDisplayBadges() { return state.get().displayBadges(); }
+    public String getDisplayName() { return state.get().displayName(); }
+
+    // Materialized copies for callers that need to modify the result
+    public Set<Identifier> copyOwnedBadges() { return new HashSet<>(state.get().ownedBadges()); }
+    public List<Identifier> copyDisplayBadges() { return new ArrayList<>(state.get().displayBadges()); }
+
+    public int getOwnedBadgeCount() {
+        return state.get().ownedBadges().size();
+    }
+
+    public int getDisplayedBadgeCount() {
+        int count = 0;
+        for (Identifier badgeId : state.get().displayBadges()) {
+            if (badgeId != null) count++;
+        }
+        return count;
+    }
+
+    public boolean isDisplayed(Identifier badgeId) {
+        return badgeId != null && state.get().displayBadges().contains(badgeId);
+    }
 
     public void setDisplayName(String displayName) {
-        this.displayName = displayName;
+        Snapshot previous = state.getAndUpdate(current ->
+                current.displayName().equals(displayName) ? current : current.withDisplayName(displayName));
+        if (!previous.displayName().equals(displayName)) {
+            BadgeDataManager.markDirty(playerId);
+        }
     }
 
     public boolean hasBadge(Identifier badgeId) {
-        return ownedBadges.contains(badgeId);
+        return state.get().ownedBadges().contains(badgeId);
+    }
+
+    // Epoch millis at which the badge expires, or PERMANENT
+    public long getExpiry(Identifier badgeId) {
+        return state.get().getExpiry(badgeId);
     }
 
     public void addBadge(Identifier badgeId) {
-        ownedBadges.add(badgeId);
+        addBadges(List.of(badgeId), PERMANENT);
     }
 
     public void removeBadge(Identifier badgeId) {
-        ownedBadges.remove(badgeId);
-        // Remove from display if present
-        for (int i = 0; i < displayBadges.size(); i++) {
-            if (Objects.equals(displayBadges.get(i), badgeId)) {
-                displayBadges.set(i, null);
+        Snapshot previous = state.getAndUpdate(current -> {
+            if (!current.ownedBadges().contains(badgeId)) return current;
+            Set<Identifier> owned = new HashSet<>(current.ownedBadges());
+            owned.remove(badgeId);
+
+            // Remove from display if present
+            List<Identifier> display = current.displayBadges();
+            if (display.contains(badgeId)) {
+                Identifier[] slots = display.toArray(new Identifier[0]);
+                for (int i = 0; i < slots.length; i++) {
+                    if (Objects.equals(slots[i], badgeId)) {
+                        slots[i] = null;
+                    }
+                }
+                display = Collections.unmodifiableList(Arrays.asList(slots));
+            }
+            return current.withOwnedBadges(owned, display, current.expiriesWithout(List.of(badgeId)));
+        });
+
+        if (previous.ownedBadges().contains(badgeId)) {
+            BadgeDataManager.markDirty(playerId);
+            BadgeEvents.publish(new BadgeEvent.Revoked(playerId, badgeId, System.currentTimeMillis()));
+        }
+    }
+
+    // Grant several badges in one snapshot swap. Returns the badges that were newly added.
+    public List<Identifier> addBadges(Collection<Identifier> badgeIds) {
+        return addBadges(badgeIds, PERMANENT);
+    }
+
+    // Grant with an expiry (epoch millis, or PERMANENT). Re-granting a badge the player already
+    // owns extends its expiry; a permanent grant always wins over a timed one.
+    // Returns the badges that were newly added.
+    public List<Identifier> addBadges(Collection<Identifier> badgeIds, long expiresAt) {
+        while (true) {
+            Snapshot current = state.get();
+            List<Identifier> added = new ArrayList<>();
+            Map<Identifier, Long> expiries = null;
+            for (Identifier badgeId : badgeIds) {
+                boolean owned = current.ownedBadges().contains(badgeId);
+                if (!owned && !added.contains(badgeId)) {
+                    added.add(badgeId);
+                }
+
+                long currentExpiry = owned ? current.getExpiry(badgeId) : PERMANENT;
+                long nextExpiry = !owned ? expiresAt
+                        : currentExpiry == PERMANENT || expiresAt == PERMANENT ? PERMANENT
+                        : Math.max(currentExpiry, expiresAt);
+                if (nextExpiry != currentExpiry) {
+                    if (expiries == null) expiries = new HashMap<>(current.expiries());
+                    if (nextExpiry == PERMANENT) {
+                        expiries.remove(badgeId);
+                    } else {
+                        expiries.put(badgeId, nextExpiry);
+                    }
+                }
+            }
+            if (added.isEmpty() && expiries == null) return added;
+
+            Set<Identifier> owned = new HashSet<>(current.ownedBadges());
+            owned.addAll(added);
+            Snapshot next = current.withOwnedBadges(owned, current.displayBadges(),
+                    expiries != null ? expiries : current.expiries());
+            if (state.compareAndSet(current, next)) {
+                long now = System.currentTimeMillis();
+                if (!added.isEmpty()) BadgeDataManager.recordGrants(playerId, added, now);
+                BadgeDataManager.markDirty(playerId);
+                for (Identifier badgeId : added) {
+                    BadgeEvents.publish(new BadgeEvent.Granted(playerId, badgeId, now));
+                }
+                return added;
+            }
+        }
+    }
+
+    // Revoke several badges in one snapshot swap. Returns the badges that were actually removed.
+    public List<Identifier> removeBadges(Collection<Identifier> badgeIds) {
+        while (true) {
+            Snapshot current = state.get();
+            List<Identifier> removed = new ArrayList<>();
+            for (Identifier badgeId : badgeIds) {
+                if (current.ownedBadges().contains(badgeId) && !removed.contains(badgeId)) {
+                    removed.add(badgeId);
+                }
+            }
+            if (removed.isEmpty()) return removed;
+
+            Set<Identifier> owned = new HashSet<>(current.ownedBadges());
+            owned.removeAll(removed);
+
+            // Clear any display slots holding a removed badge
+            Identifier[] slots = current.displayBadges().toArray(new Identifier[0]);
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] != null && removed.contains(slots[i])) {
+                    slots[i] = null;
+                }
+            }
+            Snapshot next = current.withOwnedBadges(owned, Collections.unmodifiableList(Arrays.asList(slots)),
+                    current.expiriesWithout(removed));
+            if (state.compareAndSet(current, next)) {
+                BadgeDataManager.markDirty(playerId);
+                long now = System.currentTimeMillis();
+                for (Identifier badgeId : removed) {
+                    BadgeEvents.publish(new BadgeEvent.Revoked(playerId, badgeId, now));
+                }
+                return removed;
             }
         }
     }
 
     public boolean setDisplayBadge(int slot, Identifier badgeId) {
-        if (slot < 0 || slot >= 8) return false;
-        if (badgeId != null && !ownedBadges.contains(badgeId)) return false;
+        if (slot < 0 || slot >= DISPLAY_SLOTS) return false;
 
-        displayBadges.set(slot, badgeId);
-        return true;
+        while (true) {
+            Snapshot current = state.get();
+            if (badgeId != null && !current.ownedBadges().contains(badgeId)) return false;
+
+            Identifier previousBadgeId = current.displayBadges().get(slot);
+            if (Objects.equals(previousBadgeId, badgeId)) return true;
+
+            Identifier[] slots = current.displayBadges().toArray(new Identifier[0]);
+            slots[slot] = badgeId;
+            if (state.compareAndSet(current, current.withDisplayBadges(slots))) {
+                BadgeDataManager.markDirty(playerId);
+                BadgeEvents.publish(new BadgeEvent.DisplayChanged(playerId, slot, previousBadgeId, badgeId,
+                        System.currentTimeMillis()));
+                return true;
+            }
+        }
     }
 
     public Identifier getDisplayBadge(int slot) {
-        if (slot < 0 || slot >= 8) return null;
-        return displayBadges.get(slot);
+        if (slot < 0 || slot >= DISPLAY_SLOTS) return null;
+        return state.get().displayBadges().get(slot);
     }
 
+    // Stored form, for player data files, backups and the archive
     public NbtCompound toNbt() {
+        NbtCompound nbt = toNetworkNbt();
+        nbt.putLong("lastSeen", lastSeen);
+        return nbt;
+    }
+
+    // Form sent to clients: everything they display, without server-only bookkeeping like lastSeen
+    public NbtCompound toNetworkNbt() {
+        Snapshot snapshot = state.get();
         NbtCompound nbt = new NbtCompound();
         nbt.putUuid("playerId", playerId);
-        nbt.putString("displayName", displayName);
+        nbt.putString("displayName", snapshot.displayName());
 
         // Save owned badges
         NbtCompound ownedNbt = new NbtCompound();
         int i = 0;
-        for (Identifier badge : ownedBadges) {
+        for (Identifier badge : snapshot.ownedBadges()) {
             ownedNbt.putString(String.valueOf(i++), badge.toString());
         }
         nbt.put("ownedBadges", ownedNbt);
 
         // Save display badges
         NbtCompound displayNbt = new NbtCompound();
+        List<Identifier> displayBadges = snapshot.displayBadges();
         for (int j = 0; j < displayBadges.size(); j++) {
             if (displayBadges.get(j) != null) {
                 displayNbt.putString(String.valueOf(j), displayBadges.get(j).toString());
@@ -78,30 +282,75 @@ public class PlayerBadgeData {
         }
         nbt.put("displayBadges", displayNbt);
 
+        // Save expiry deadlines of timed grants
+        if (!snapshot.expiries().isEmpty()) {
+            NbtCompound expiryNbt = new NbtCompound();
+            for (Map.Entry<Identifier, Long> entry : snapshot.expiries().entrySet()) {
+                expiryNbt.putLong(entry.getKey().toString(), entry.getValue());
+            }
+            nbt.put("badgeExpiry", expiryNbt);
+        }
+
         return nbt;
     }
 
     public static PlayerBadgeData fromNbt(NbtCompound nbt) {
         UUID playerId = nbt.getUuid("playerId");
-        PlayerBadgeData data = new PlayerBadgeData(playerId);
-        data.displayName = nbt.getString("displayName");
 
         // Load owned badges
+        Set<Identifier> owned = new HashSet<>();
         NbtCompound ownedNbt = nbt.getCompound("ownedBadges");
         int i = 0;
         while (ownedNbt.contains(String.valueOf(i))) {
-            data.ownedBadges.add(Identifier.of(ownedNbt.getString(String.valueOf(i))));
+            // Interned, so every player holding a badge shares one Identifier
+            Identifier badgeId = BadgeIds.intern(ownedNbt.getString(String.valueOf(i)));
+            if (badgeId != null) owned.add(badgeId);
             i++;
         }
 
         // Load display badges
+        Identifier[] display = new Identifier[DISPLAY_SLOTS];
         NbtCompound displayNbt = nbt.getCompound("displayBadges");
-        for (int j = 0; j < 8; j++) {
+        for (int j = 0; j < DISPLAY_SLOTS; j++) {
             if (displayNbt.contains(String.valueOf(j))) {
-                data.displayBadges.set(j, Identifier.of(displayNbt.getString(String.valueOf(j))));
+                display[j] = BadgeIds.intern(displayNbt.getString(String.valueOf(j)));
             }
         }
 
+        // Load expiry deadlines, ignoring any for badges the player no longer owns
+        Map<Identifier, Long> expiries = new HashMap<>();
+        NbtCompound expiryNbt = nbt.getCompound("badgeExpiry");
+        for (String key : expiryNbt.getKeys()) {
+            Identifier badgeId = BadgeIds.intern(key);
+            if (badgeId != null && owned.contains(badgeId)) {
+                expiries.put(badgeId, expiryNbt.getLong(key));
+            }
+        }
+
+        // Records saved before lastSeen existed count as seen when they are loaded
+        return of(playerId, owned, display, nbt.getString("displayName"), expiries,
+                nbt.contains("lastSeen") ? nbt.getLong("lastSeen") : System.currentTimeMillis());
+    }
+
+    // Rebuild a stored record; takes ownership of the collections
+    static PlayerBadgeData of(UUID playerId, Set<Identifier> owned, Identifier[] display, String displayName,
+                              Map<Identifier, Long> expiries, long lastSeen) {
+        PlayerBadgeData data = new PlayerBadgeData(playerId);
+        data.lastSeen = lastSeen;
+        data.state.set(snapshotOf(owned, display, displayName, expiries));
         return data;
     }
-}
\ No newline at end of file
+
+    static Snapshot snapshotOf(Set<Identifier> owned, Identifier[] display, String displayName,
+                               Map<Identifier, Long> expiries) {
+        return new Snapshot(Collections.unmodifiableSet(owned), Collections.unmodifiableList(Arrays.asList(display)),
+                displayName, expiries.isEmpty() ? Map.of() : Collections.unmodifiableMap(expiries));
+    }
+
+    // Overwrite the whole record with state replicated from another server. No badge events are
+    // published; the server that made the change already published them.
+    void replaceSnapshot(Snapshot snapshot) {
+        state.set(snapshot);
+        BadgeDataManager.markReplicated(playerId);
+    }
+}
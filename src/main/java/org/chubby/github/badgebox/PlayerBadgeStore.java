@@ -0,0 +1,64 @@
+package org.chubby.github.badgebox;
+
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+// Persistence behind BadgeDataManager. Every record stays in memory for the game itself; a store
+// loads them at startup, persists changes, and answers the admin and analytics queries that would
+// otherwise scan every record. Selected by the storage config option.
+public interface PlayerBadgeStore {
+    record Holders(int total, List<String> names) {
+    }
+
+    // grantedAt is epoch millis
+    record Grant(UUID playerId, String displayName, Identifier badgeId, long grantedAt) {
+    }
+
+    String name();
+
+    // Start I/O that does not depend on the catalog. Runs at startup alongside the catalog load.
+    default void prefetch() {
+    }
+
+    // Read every stored record, or null if nothing is stored. Runs after the catalog is installed
+    // so badge ids intern to the registry's Identifiers.
+    Map<UUID, PlayerBadgeData> load(ForkJoinPool pool);
+
+    // A record changed or was removed since the last save. Safe from any thread.
+    void markDirty(UUID playerId);
+
+    // Badges newly granted to a player, with the epoch millis of the grant. Called before the
+    // matching markDirty, from any thread.
+    default void recordGrants(UUID playerId, Collection<Identifier> badgeIds, long grantedAt) {
+    }
+
+    // Persist the live records. Returns the size of the stored data in bytes.
+    long save(Map<UUID, PlayerBadgeData> records) throws IOException;
+
+    // Run action once everything handed to save so far is committed. A store that writes in the
+    // background runs it on its writer thread, and skips it while failed writes await a retry.
+    default void whenCommitted(Runnable action) {
+        action.run();
+    }
+
+    // The queries below cover live records only: players compacted into BadgeArchive are left out,
+    // as they are from the records passed to save
+
+    // Holder names sorted by name, at most limit of them
+    Holders findHolders(Identifier badgeId, int limit) throws IOException;
+
+    // Number of players holding each badge
+    Map<Identifier, Integer> countHolders() throws IOException;
+
+    // Most recent grants first
+    List<Grant> recentGrants(int limit) throws IOException;
+
+    default void close() {
+    }
+}
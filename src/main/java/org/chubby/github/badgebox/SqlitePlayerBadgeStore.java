@@ -0,0 +1,452 @@
+package org.chubby.github.badgebox;
+
+import com.google.gson.JsonArray;
+import net.minecraft.util.Identifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Player records in an embedded SQLite database, config/badgebox/player_data.db, in WAL mode so
+// queries read while the writer commits. A save only collects the records marked dirty since the
+// previous one and hands their snapshots to a dedicated writer thread, which applies them as
+// batched prepared statements in one transaction. Holder, per-badge count and recent-grant queries
+// run as indexed SQL, each on its own read-only connection, and see the data as of the last commit.
+// On first start the database is filled from player_data.dat if that file exists; the import is
+// recorded in the meta table with the imported records, so the file is never imported twice.
+public class SqlitePlayerBadgeStore implements PlayerBadgeStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger("SqlitePlayerBadgeStore");
+    private static final int BATCH_SIZE = 500;
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS players (player_id TEXT PRIMARY KEY, display_name TEXT NOT NULL, "
+                    + "last_seen INTEGER NOT NULL, display TEXT NOT NULL)",
+            // granted_at is 0 for grants without a known time: imported, restored or replicated
+            "CREATE TABLE IF NOT EXISTS player_badges (player_id TEXT NOT NULL, badge_id TEXT NOT NULL, "
+                    + "granted_at INTEGER NOT NULL, expires_at INTEGER NOT NULL, PRIMARY KEY (player_id, badge_id)) WITHOUT ROWID",
+            "CREATE INDEX IF NOT EXISTS player_badges_by_badge ON player_badges (badge_id, player_id)",
+            "CREATE INDEX IF NOT EXISTS player_badges_by_grant ON player_badges (granted_at)",
+            "CREATE INDEX IF NOT EXISTS players_by_name ON players (display_name)",
+            "CREATE TABLE IF NOT EXISTS meta (key TEXT PRIMARY KEY, value TEXT NOT NULL)"
+    };
+    private static final String LEGACY_IMPORTED = "legacy_imported";
+    private static final String UPSERT_PLAYER = "INSERT INTO players (player_id, display_name, last_seen, display) "
+            + "VALUES (?, ?, ?, ?) ON CONFLICT (player_id) DO UPDATE SET display_name = excluded.display_name, "
+            + "last_seen = excluded.last_seen, display = excluded.display";
+    // An existing grant keeps its granted_at unless the badge was granted again since
+    private static final String UPSERT_BADGE = "INSERT INTO player_badges (player_id, badge_id, granted_at, expires_at) "
+            + "VALUES (?, ?, ?, ?) ON CONFLICT (player_id, badge_id) DO UPDATE SET "
+            + "granted_at = max(player_badges.granted_at, excluded.granted_at), expires_at = excluded.expires_at";
+    private static final String PRUNE_BADGES = "DELETE FROM player_badges WHERE player_id = ? "
+            + "AND badge_id NOT IN (SELECT value FROM json_each(?))";
+    private static final String DELETE_BADGES = "DELETE FROM player_badges WHERE player_id = ?";
+    private static final String DELETE_PLAYER = "DELETE FROM players WHERE player_id = ?";
+    private static final String PUT_META = "INSERT OR REPLACE INTO meta (key, value) VALUES (?, ?)";
+
+    // What the writer persists for one player; a null snapshot deletes the player.
+    // grantTimes holds the grants made since the previous save.
+    private record Change(UUID playerId, PlayerBadgeData.Snapshot snapshot, long lastSeen,
+                          Map<Identifier, Long> grantTimes) {
+    }
+
+    private final Path file;
+    private final Path legacyFile;
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Map<Identifier, Long>> grantTimes = new ConcurrentHashMap<>();
+    // Bumped each time a failed write puts its records back in the dirty set
+    private final AtomicLong failures = new AtomicLong();
+    // Set until the write carrying the legacy file's records, or marking it as superseded, commits
+    private final AtomicBoolean legacyImportPending = new AtomicBoolean();
+    // Writer thread: the last write committed and carried every record an earlier failure put back
+    private boolean committed = true;
+    // Set once the database is open, after writeConnection, so save() can skip the lock
+    private volatile ExecutorService writer;
+    // Owned by the writer thread
+    private Connection writeConnection;
+
+    public SqlitePlayerBadgeStore(Path file, Path legacyFile) {
+        this.file = file;
+        this.legacyFile = legacyFile;
+    }
+
+    @Override
+    public String name() {
+        return "sqlite";
+    }
+
+    // Opened by load(); later calls return without locking once the writer exists
+    private void open() throws SQLException {
+        if (writer != null) return;
+
+        synchronized (this) {
+            if (writer != null) return;
+
+            Connection write = DriverManager.getConnection(url());
+            try (Statement statement = write.createStatement()) {
+                statement.execute("PRAGMA journal_mode = WAL");
+                // Durable across crashes in WAL mode; only a power loss can drop the last commits
+                statement.execute("PRAGMA synchronous = NORMAL");
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            } catch (SQLException e) {
+                closeQuietly(write);
+                throw e;
+            }
+            writeConnection = write;
+
+            writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "BadgeBox-Database");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private String url() {
+        return "jdbc:sqlite:" + file.toAbsolutePath();
+    }
+
+    // A fresh read-only connection per query, so a slow query holds no lock that save() or another
+    // query waits on. The driver only takes the read-only flag when the connection is opened.
+    private Connection openReader() throws SQLException {
+        open();
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        return config.createConnection(url());
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) return;
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.warn("Failed to close a badge database connection", e);
+        }
+    }
+
+    @Override
+    public Map<UUID, PlayerBadgeData> load(ForkJoinPool pool) {
+        try {
+            open();
+            Map<UUID, PlayerBadgeData> loaded;
+            boolean legacyImported;
+            try (Connection connection = openReader()) {
+                loaded = read(connection);
+                legacyImported = readMeta(connection, LEGACY_IMPORTED) != null;
+            }
+            if (legacyImported || !Files.exists(legacyFile)) {
+                return loaded.isEmpty() ? null : loaded;
+            }
+            if (!loaded.isEmpty()) {
+                // Filled before imports were recorded: mark the file as done at the next save, so
+                // it is never imported over this data once compaction has emptied the tables
+                legacyImportPending.set(true);
+                return loaded;
+            }
+
+            // First start on this store: import the NBT file and write it all, with the record of
+            // the import, at the next save
+            Map<UUID, PlayerBadgeData> imported = new NbtPlayerBadgeStore(legacyFile).load(pool);
+            if (imported == null) return null;
+            dirty.addAll(imported.keySet());
+            legacyImportPending.set(true);
+            LOGGER.info("Importing {} player records from {} into {}", imported.size(),
+                    legacyFile.getFileName(), file.getFileName());
+            return imported;
+        } catch (SQLException e) {
+            LOGGER.error("Failed to load player data from {}", file, e);
+            return null;
+        }
+    }
+
+    private static Map<UUID, PlayerBadgeData> read(Connection connection) throws SQLException {
+        Map<UUID, Set<Identifier>> owned = new HashMap<>();
+        Map<UUID, Map<Identifier, Long>> expiries = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT player_id, badge_id, expires_at FROM player_badges")) {
+            while (rows.next()) {
+                UUID playerId = UUID.fromString(rows.getString(1));
+                Identifier badgeId = BadgeIds.intern(rows.getString(2));
+                if (badgeId == null) continue;
+                owned.computeIfAbsent(playerId, id -> new HashSet<>()).add(badgeId);
+                long expiresAt = rows.getLong(3);
+                if (expiresAt != PlayerBadgeData.PERMANENT) {
+                    expiries.computeIfAbsent(playerId, id -> new HashMap<>()).put(badgeId, expiresAt);
+                }
+            }
+        }
+
+        Map<UUID, PlayerBadgeData> loaded = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT player_id, display_name, last_seen, display FROM players")) {
+            while (rows.next()) {
+                UUID playerId = UUID.fromString(rows.getString(1));
+                Set<Identifier> badges = owned.getOrDefault(playerId, new HashSet<>());
+                loaded.put(playerId, PlayerBadgeData.of(playerId, badges, decodeDisplay(rows.getString(4), badges),
+                        rows.getString(2), expiries.getOrDefault(playerId, new HashMap<>()), rows.getLong(3)));
+            }
+        }
+        return loaded;
+    }
+
+    private static String readMeta(Connection connection, String key) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT value FROM meta WHERE key = ?")) {
+            select.setString(1, key);
+            try (ResultSet rows = select.executeQuery()) {
+                return rows.next() ? rows.getString(1) : null;
+            }
+        }
+    }
+
+    @Override
+    public void markDirty(UUID playerId) {
+        dirty.add(playerId);
+    }
+
+    @Override
+    public void recordGrants(UUID playerId, Collection<Identifier> badgeIds, long grantedAt) {
+        Map<Identifier, Long> times = grantTimes.computeIfAbsent(playerId, id -> new ConcurrentHashMap<>());
+        for (Identifier badgeId : badgeIds) {
+            times.put(badgeId, grantedAt);
+        }
+    }
+
+    // Snapshots are taken here, on the caller's thread; only the SQL runs on the writer
+    @Override
+    public long save(Map<UUID, PlayerBadgeData> records) throws IOException {
+        try {
+            open();
+        } catch (SQLException e) {
+            throw new IOException("Failed to open " + file, e);
+        }
+
+        // Read before draining: a failure counted here has already put its records back
+        long failuresSeen = failures.get();
+        List<UUID> changed = new ArrayList<>(dirty);
+        dirty.removeAll(changed);
+        boolean recordImport = legacyImportPending.getAndSet(false);
+        if (!changed.isEmpty() || recordImport) {
+            List<Change> changes = new ArrayList<>(changed.size());
+            for (UUID playerId : changed) {
+                PlayerBadgeData data = records.get(playerId);
+                // Taken after the player left the dirty set: a grant recorded later marks it again
+                Map<Identifier, Long> times = grantTimes.remove(playerId);
+                changes.add(data != null
+                        ? new Change(playerId, data.snapshot(), data.getLastSeen(), times != null ? times : Map.of())
+                        : new Change(playerId, null, 0, Map.of()));
+            }
+            writer.execute(() -> write(changes, failuresSeen, recordImport));
+        }
+        return Files.exists(file) ? Files.size(file) : 0;
+    }
+
+    // Writer thread. recordImport commits the legacy import marker with the changes.
+    private void write(List<Change> changes, long failuresSeen, boolean recordImport) {
+        long start = System.nanoTime();
+        try {
+            writeConnection.setAutoCommit(false);
+            try (PreparedStatement upsertPlayer = writeConnection.prepareStatement(UPSERT_PLAYER);
+                 PreparedStatement upsertBadge = writeConnection.prepareStatement(UPSERT_BADGE);
+                 PreparedStatement pruneBadges = writeConnection.prepareStatement(PRUNE_BADGES);
+                 PreparedStatement deleteBadges = writeConnection.prepareStatement(DELETE_BADGES);
+                 PreparedStatement deletePlayer = writeConnection.prepareStatement(DELETE_PLAYER)) {
+                int pending = 0;
+                for (Change change : changes) {
+                    String playerId = change.playerId().toString();
+                    PlayerBadgeData.Snapshot snapshot = change.snapshot();
+                    if (snapshot == null) {
+                        deleteBadges.setString(1, playerId);
+                        deleteBadges.addBatch();
+                        deletePlayer.setString(1, playerId);
+                        deletePlayer.addBatch();
+                    } else {
+                        upsertPlayer.setString(1, playerId);
+                        upsertPlayer.setString(2, snapshot.displayName());
+                        upsertPlayer.setLong(3, change.lastSeen());
+                        upsertPlayer.setString(4, encodeDisplay(snapshot.displayBadges()));
+                        upsertPlayer.addBatch();
+
+                        JsonArray ownedIds = new JsonArray();
+                        for (Identifier badgeId : snapshot.ownedBadges()) {
+                            ownedIds.add(badgeId.toString());
+                            upsertBadge.setString(1, playerId);
+                            upsertBadge.setString(2, badgeId.toString());
+                            upsertBadge.setLong(3, change.grantTimes().getOrDefault(badgeId, 0L));
+                            upsertBadge.setLong(4, snapshot.getExpiry(badgeId));
+                            upsertBadge.addBatch();
+                        }
+                        pruneBadges.setString(1, playerId);
+                        pruneBadges.setString(2, ownedIds.toString());
+                        pruneBadges.addBatch();
+                    }
+
+                    if (++pending >= BATCH_SIZE) {
+                        executeBatches(upsertPlayer, upsertBadge, pruneBadges, deleteBadges, deletePlayer);
+                        pending = 0;
+                    }
+                }
+                executeBatches(upsertPlayer, upsertBadge, pruneBadges, deleteBadges, deletePlayer);
+            }
+            if (recordImport) {
+                try (PreparedStatement putMeta = writeConnection.prepareStatement(PUT_META)) {
+                    putMeta.setString(1, LEGACY_IMPORTED);
+                    putMeta.setString(2, legacyFile.getFileName() + " at " + System.currentTimeMillis());
+                    putMeta.executeUpdate();
+                }
+            }
+            writeConnection.commit();
+            committed = failuresSeen == failures.get();
+            LOGGER.debug("Wrote {} player records in {} ms", changes.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (SQLException e) {
+            LOGGER.error("Failed to write {} player records, they will be retried on the next save", changes.size(), e);
+            try {
+                writeConnection.rollback();
+            } catch (SQLException rollbackError) {
+                LOGGER.error("Failed to roll back the badge database", rollbackError);
+            }
+            for (Change change : changes) {
+                if (!change.grantTimes().isEmpty()) {
+                    Map<Identifier, Long> times = grantTimes.computeIfAbsent(change.playerId(), id -> new ConcurrentHashMap<>());
+                    change.grantTimes().forEach((badgeId, grantedAt) -> times.merge(badgeId, grantedAt, Math::max));
+                }
+                dirty.add(change.playerId());
+            }
+            if (recordImport) legacyImportPending.set(true);
+            failures.incrementAndGet();
+            committed = false;
+        }
+    }
+
+    @Override
+    public void whenCommitted(Runnable action) {
+        ExecutorService current = writer;
+        if (current == null) return;
+        current.execute(() -> {
+            if (committed) action.run();
+        });
+    }
+
+    private static void executeBatches(PreparedStatement... statements) throws SQLException {
+        for (PreparedStatement statement : statements) {
+            statement.executeBatch();
+        }
+    }
+
+    // Display slots as one comma-separated column, empty between commas for an empty slot
+    private static String encodeDisplay(List<Identifier> display) {
+        StringJoiner joiner = new StringJoiner(",");
+        for (Identifier badgeId : display) {
+            joiner.add(badgeId != null ? badgeId.toString() : "");
+        }
+        return joiner.toString();
+    }
+
+    private static Identifier[] decodeDisplay(String encoded, Set<Identifier> owned) {
+        Identifier[] display = new Identifier[PlayerBadgeData.DISPLAY_SLOTS];
+        String[] slots = encoded.split(",", -1);
+        for (int i = 0; i < Math.min(slots.length, display.length); i++) {
+            Identifier badgeId = slots[i].isEmpty() ? null : BadgeIds.intern(slots[i]);
+            if (badgeId != null && owned.contains(badgeId)) display[i] = badgeId;
+        }
+        return display;
+    }
+
+    @Override
+    public Holders findHolders(Identifier badgeId, int limit) throws IOException {
+        try (Connection connection = openReader()) {
+            int total;
+            try (PreparedStatement count = connection.prepareStatement(
+                    "SELECT COUNT(*) FROM player_badges WHERE badge_id = ?")) {
+                count.setString(1, badgeId.toString());
+                try (ResultSet rows = count.executeQuery()) {
+                    total = rows.next() ? rows.getInt(1) : 0;
+                }
+            }
+
+            List<String> names = new ArrayList<>();
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT p.player_id, p.display_name FROM player_badges b JOIN players p ON p.player_id = b.player_id "
+                            + "WHERE b.badge_id = ? ORDER BY p.display_name LIMIT ?")) {
+                select.setString(1, badgeId.toString());
+                select.setInt(2, limit);
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        String displayName = rows.getString(2);
+                        names.add(displayName.isEmpty() ? rows.getString(1) : displayName);
+                    }
+                }
+            }
+            return new Holders(total, names);
+        } catch (SQLException e) {
+            throw new IOException("Badge holder query failed", e);
+        }
+    }
+
+    @Override
+    public Map<Identifier, Integer> countHolders() throws IOException {
+        try (Connection connection = openReader()) {
+            Map<Identifier, Integer> counts = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT badge_id, COUNT(*) FROM player_badges GROUP BY badge_id")) {
+                while (rows.next()) {
+                    Identifier badgeId = Identifier.tryParse(rows.getString(1));
+                    if (badgeId != null) counts.put(badgeId, rows.getInt(2));
+                }
+            }
+            return counts;
+        } catch (SQLException e) {
+            throw new IOException("Badge count query failed", e);
+        }
+    }
+
+    @Override
+    public List<Grant> recentGrants(int limit) throws IOException {
+        try (Connection connection = openReader()) {
+            List<Grant> grants = new ArrayList<>();
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT b.player_id, p.display_name, b.badge_id, b.granted_at FROM player_badges b "
+                            + "JOIN players p ON p.player_id = b.player_id WHERE b.granted_at > 0 "
+                            + "ORDER BY b.granted_at DESC LIMIT ?")) {
+                select.setInt(1, limit);
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        Identifier badgeId = Identifier.tryParse(rows.getString(3));
+                        if (badgeId == null) continue;
+                        grants.add(new Grant(UUID.fromString(rows.getString(1)), rows.getString(2), badgeId,
+                                rows.getLong(4)));
+                    }
+                }
+            }
+            return grants;
+        } catch (SQLException e) {
+            throw new IOException("Recent grants query failed", e);
+        }
+    }
+
+    // Waits for queued writes so nothing is lost on shutdown
+    @Override
+    public synchronized void close() {
+        if (writer == null) return;
+
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                LOGGER.warn("Badge database writes did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeQuietly(writeConnection);
+        writer = null;
+        writeConnection = null;
+    }
+}
@@ -36,6 +36,16 @@ public class BadgeClientNetworking {
                     }
                 }
         );
+
+        // Handle batched badge data sync from server
+        ClientPlayNetworking.registerGlobalReceiver(
+                BadgeNetworking.SyncBadgeDataBatchPayload.ID,
+                (payload, context) -> {
+                    for (PlayerBadgeData data : payload.entries()) {
+                        clientBadgeCache.put(data.getPlayerId(), data);
+                    }
+                }
+        );
     }
 
     // Methods to send packets to server
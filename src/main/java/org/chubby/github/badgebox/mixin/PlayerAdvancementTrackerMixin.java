@@ -0,0 +1,30 @@
+package org.chubby.github.badgebox.mixin;
+
+import net.minecraft.advancement.AdvancementEntry;
+import net.minecraft.advancement.AdvancementProgress;
+import net.minecraft.advancement.PlayerAdvancementTracker;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.chubby.github.badgebox.BadgeCriteria;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+// Notifies the criteria index when a criterion grant completes an advancement
+@Mixin(PlayerAdvancementTracker.class)
+public abstract class PlayerAdvancementTrackerMixin {
+    @Shadow
+    private ServerPlayerEntity owner;
+
+    @Shadow
+    public abstract AdvancementProgress getProgress(AdvancementEntry advancement);
+
+    @Inject(method = "grantCriterion", at = @At("RETURN"))
+    private void badgebox$onGrantCriterion(AdvancementEntry advancement, String criterionName,
+                                           CallbackInfoReturnable<Boolean> cir) {
+        if (cir.getReturnValueZ() && getProgress(advancement).isDone()) {
+            BadgeCriteria.onAdvancementDone(owner, advancement.id());
+        }
+    }
+}
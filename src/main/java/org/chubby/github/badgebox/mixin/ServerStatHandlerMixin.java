@@ -0,0 +1,22 @@
+package org.chubby.github.badgebox.mixin;
+
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.stat.ServerStatHandler;
+import net.minecraft.stat.Stat;
+import org.chubby.github.badgebox.BadgeCriteria;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+// Feeds every server-side stat write into the criteria index
+@Mixin(ServerStatHandler.class)
+public abstract class ServerStatHandlerMixin {
+    @Inject(method = "setStat", at = @At("TAIL"))
+    private void badgebox$onSetStat(PlayerEntity player, Stat<?> stat, int value, CallbackInfo ci) {
+        if (player instanceof ServerPlayerEntity serverPlayer) {
+            BadgeCriteria.onStatChanged(serverPlayer, stat, value);
+        }
+    }
+}
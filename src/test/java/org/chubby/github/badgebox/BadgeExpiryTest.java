@@ -0,0 +1,59 @@
+package org.chubby.github.badgebox;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BadgeExpiryTest {
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final long WEEK = 7 * DAY;
+
+    @Test
+    void parsesSingleUnits() {
+        assertEquals(45 * SECOND, BadgeExpiry.parseDuration("45s"));
+        assertEquals(90 * MINUTE, BadgeExpiry.parseDuration("90m"));
+        assertEquals(12 * HOUR, BadgeExpiry.parseDuration("12h"));
+        assertEquals(30 * DAY, BadgeExpiry.parseDuration("30d"));
+        assertEquals(2 * WEEK, BadgeExpiry.parseDuration("2w"));
+    }
+
+    @Test
+    void parsesCombinedAndUppercaseUnits() {
+        assertEquals(DAY + 12 * HOUR, BadgeExpiry.parseDuration("1d12h"));
+        assertEquals(WEEK + 2 * DAY + 3 * HOUR + 4 * MINUTE + 5 * SECOND, BadgeExpiry.parseDuration("1w2d3h4m5s"));
+        assertEquals(3 * HOUR, BadgeExpiry.parseDuration("1H2h"));
+        assertEquals(HOUR, BadgeExpiry.parseDuration("0d1h"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "d", "10", "1d12", "10x", "1.5h", "-5m", "+5m", "h1", "1d 2h", " 1d", "0s", "0d0h",
+            "1dd"})
+    void rejectsInvalidDurations(String text) {
+        assertEquals(-1, BadgeExpiry.parseDuration(text));
+    }
+
+    @Test
+    void rejectsNumbersTooLongToAccumulate() {
+        assertEquals(-1, BadgeExpiry.parseDuration("1000001s"));
+        assertEquals(-1, BadgeExpiry.parseDuration("99999999999999999999999s"));
+    }
+
+    @Test
+    void acceptsUpToTheMaximumDuration() {
+        long maxDays = BadgeExpiry.MAX_DURATION_MILLIS / DAY;
+        assertEquals(BadgeExpiry.MAX_DURATION_MILLIS, BadgeExpiry.parseDuration(maxDays + "d"));
+        assertEquals(-1, BadgeExpiry.parseDuration(maxDays + "d1s"));
+    }
+
+    @Test
+    void rejectsTotalsThatWouldOverflow() {
+        // Every term is in range, but together they would pass Long.MAX_VALUE without the cap
+        assertEquals(-1, BadgeExpiry.parseDuration("1000000w".repeat(20_000)));
+        assertEquals(-1, BadgeExpiry.parseDuration("1000000w"));
+    }
+}
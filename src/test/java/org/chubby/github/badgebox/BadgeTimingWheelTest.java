@@ -0,0 +1,171 @@
+package org.chubby.github.badgebox;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BadgeTimingWheelTest {
+    private static final long[] BOUNDARY_DELTAS = {1, 2, 62, 63, 64, 65, 127, 128, 4095, 4096, 4097, 8191, 8192,
+            262_143, 262_144, 262_145};
+
+    // Advances to targetTick and returns value -> tick it fired at
+    private static <T> Map<T, Long> advance(BadgeTimingWheel<T> wheel, long targetTick) {
+        Map<T, Long> fired = new LinkedHashMap<>();
+        wheel.advanceTo(targetTick, value -> assertNull(fired.put(value, wheel.getCurrentTick()), "fired twice: " + value));
+        return fired;
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 63, 64, 100, 4095, 4096, 4097, 262_143, 1_700_000_000})
+    void firesExactlyOnDueTickAcrossLevelBoundaries(long start) {
+        for (long delta : BOUNDARY_DELTAS) {
+            BadgeTimingWheel<String> wheel = new BadgeTimingWheel<>(start);
+            long due = start + delta;
+            wheel.schedule(due, "entry");
+
+            assertTrue(advance(wheel, due - 1).isEmpty(), "fired early, start " + start + " delta " + delta);
+            assertEquals(Map.of("entry", due), advance(wheel, due), "start " + start + " delta " + delta);
+            assertEquals(0, wheel.size());
+        }
+    }
+
+    @Test
+    void firesDueTicksThatLandOnBlockStarts() {
+        // Absolute due ticks 64, 4096 and 262144 start a block at levels 1, 2 and 3
+        BadgeTimingWheel<Long> wheel = new BadgeTimingWheel<>(0);
+        long[] dues = {63, 64, 65, 4095, 4096, 4097, 262_143, 262_144, 262_145};
+        for (long due : dues) {
+            wheel.schedule(due, due);
+        }
+
+        Map<Long, Long> fired = advance(wheel, 300_000);
+        assertEquals(dues.length, fired.size());
+        fired.forEach((due, tick) -> assertEquals(due, tick));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void entriesAlreadyDueFireOnTheNextTick() {
+        BadgeTimingWheel<String> wheel = new BadgeTimingWheel<>(1000);
+        wheel.schedule(1000, "now");
+        wheel.schedule(10, "past");
+
+        assertEquals(Map.of("now", 1001L, "past", 1001L), advance(wheel, 1001));
+    }
+
+    @Test
+    void entriesScheduledMidCascadeFireOnTheirOwnTick() {
+        // "trigger" is cascaded down from level 2 at tick 4096 and fires there; it then schedules
+        // entries at every level, including one already due
+        BadgeTimingWheel<String> wheel = new BadgeTimingWheel<>(0);
+        Map<String, Long> expected = new HashMap<>();
+        Map<String, Long> fired = new HashMap<>();
+        wheel.schedule(4096, "trigger");
+
+        wheel.advanceTo(300_000, value -> {
+            long now = wheel.getCurrentTick();
+            fired.put(value, now);
+            if (!value.equals("trigger")) return;
+
+            assertEquals(4096, now);
+            for (long delta : new long[]{-5, 0, 1, 63, 64, 65, 4095, 4096, 4097, 262_144}) {
+                String name = "delta " + delta;
+                wheel.schedule(now + delta, name);
+                expected.put(name, Math.max(now + delta, now + 1));
+            }
+        });
+
+        expected.put("trigger", 4096L);
+        assertEquals(expected, fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void entriesScheduledWhileALowerLevelSlotIsFiringKeepTheirTick() {
+        // Fired from level 0 halfway through a level-1 block, with a follow-up in the same slot
+        // one full rotation later
+        BadgeTimingWheel<String> wheel = new BadgeTimingWheel<>(0);
+        Map<String, Long> fired = new HashMap<>();
+        wheel.schedule(4100, "first");
+
+        wheel.advanceTo(20_000, value -> {
+            fired.put(value, wheel.getCurrentTick());
+            if (value.equals("first")) {
+                wheel.schedule(wheel.getCurrentTick() + 64, "next rotation");
+                wheel.schedule(8192, "next level-1 wrap");
+            }
+        });
+
+        assertEquals(Map.of("first", 4100L, "next rotation", 4164L, "next level-1 wrap", 8192L), fired);
+    }
+
+    @Test
+    void deadlinesPastTheTopLevelAreReplacedUntilTheyFit() {
+        // Two levels span 64^2 ticks, so these wrap the top level one or more times
+        BadgeTimingWheel<Long> wheel = new BadgeTimingWheel<>(10, 2);
+        long[] dues = {10 + 4095, 10 + 4096, 10 + 4097, 10 + 10_000, 10 + 3 * 4096 + 5, 10 + 64 * 4096};
+        for (long due : dues) {
+            wheel.schedule(due, due);
+        }
+
+        Map<Long, Long> fired = advance(wheel, 10 + 64 * 4096 + 100);
+        assertEquals(dues.length, fired.size());
+        fired.forEach((due, tick) -> assertEquals(due, tick));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void farDeadlinesWaitInTheDefaultWheel() {
+        long start = 1_700_000_000;
+        BadgeTimingWheel<String> wheel = new BadgeTimingWheel<>(start);
+        // Past 64^6 ticks, and just inside the top level
+        wheel.schedule(start + (1L << 40), "beyond");
+        wheel.schedule(start + (1L << 30), "top level");
+
+        assertTrue(advance(wheel, start + 300_000).isEmpty());
+        assertEquals(2, wheel.size());
+    }
+
+    @Test
+    void randomEntriesFireOnTheirDueTick() {
+        Random random = new Random(42);
+        long start = 123_456;
+        BadgeTimingWheel<Integer> wheel = new BadgeTimingWheel<>(start);
+        long[] dues = new long[20_000];
+        for (int i = 0; i < dues.length; i++) {
+            // Mostly short deadlines, with a tail reaching level 3
+            long delta = random.nextInt(4) == 0 ? 1 + random.nextInt(400_000) : 1 + random.nextInt(5000);
+            dues[i] = start + delta;
+            wheel.schedule(dues[i], i);
+        }
+
+        // Advance in uneven steps, as a server that lags would
+        Map<Integer, Long> fired = new HashMap<>();
+        long tick = start;
+        while (tick < start + 400_001) {
+            tick = Math.min(start + 400_001, tick + 1 + random.nextInt(90));
+            fired.putAll(advance(wheel, tick));
+        }
+
+        assertEquals(dues.length, fired.size());
+        for (int i = 0; i < dues.length; i++) {
+            assertEquals(dues[i], fired.get(i), "entry " + i);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void clearDropsEverything() {
+        BadgeTimingWheel<String> wheel = new BadgeTimingWheel<>(0);
+        wheel.schedule(5, "a");
+        wheel.schedule(5000, "b");
+        wheel.clear();
+
+        assertEquals(0, wheel.size());
+        assertTrue(advance(wheel, 10_000).isEmpty());
+    }
+}